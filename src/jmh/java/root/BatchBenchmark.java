@@ -0,0 +1,74 @@
+package root;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * One closed loop RK4 step of PENDULUMS pendulums through {@link PendulumBatch} against one {@link PendulumModel} and
+ * controller per pendulum. Scores are pendulum-steps per second.
+ */
+@State(Scope.Thread)
+public class BatchBenchmark
+{
+    private static final int PENDULUMS = 1024;
+
+    @Param({"true", "false"})
+    public boolean linearized;
+
+    private PendulumBatch mBatch;
+    private PendulumModel[] mModels;
+    private Controller[] mControllers;
+    private double mDt;
+
+    @Setup
+    public void setUp()
+    {
+        SimulationConfig config = new SimulationConfig.Builder()
+                .setLinearized(linearized)
+                .setIncludePerturbations(false)
+                .build();
+        mDt = config.dtS;
+
+        mBatch = new PendulumBatch(linearized, PENDULUMS);
+        mModels = new PendulumModel[PENDULUMS];
+        mControllers = new Controller[PENDULUMS];
+
+        for (int i = 0; i < PENDULUMS; ++i)
+        {
+            // Spread the initial states out so no two pendulums take the same path
+            SimulationConfig pendulumConfig = config.toBuilder()
+                    .setInitialState(0.2 * i / PENDULUMS, 0.0)
+                    .build();
+
+            mBatch.add(pendulumConfig);
+
+            mModels[i] = pendulumConfig.createPendulumModel();
+            mModels[i].setState(pendulumConfig.initialTheta, pendulumConfig.initialThetaDot);
+            mControllers[i] = pendulumConfig.createController();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PENDULUMS)
+    public void batch()
+    {
+        mBatch.step(mDt);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PENDULUMS)
+    public void scalar()
+    {
+        for (int i = 0; i < PENDULUMS; ++i)
+        {
+            PendulumModel pendulumModel = mModels[i];
+            pendulumModel.boundTheta();
+            double torque = mControllers[i].getTorque(pendulumModel.getTheta(), pendulumModel.getThetaDot());
+            pendulumModel.step(torque, mDt);
+        }
+    }
+}
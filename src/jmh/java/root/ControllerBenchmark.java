@@ -0,0 +1,89 @@
+package root;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One controller period, advance and then getTorque, for each controller the config can build. The states go through
+ * a recorded swing so the saturation branches are taken as often as they are in a run. Run with -prof gc to check that
+ * nothing is allocated.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ControllerBenchmark
+{
+    private static final int STATES = 1024;
+
+    @Param({"STATE_FEEDBACK", "PID", "PID_ANTI_WINDUP"})
+    public String controller;
+
+    private Controller mController;
+    private double[] mTheta;
+    private double[] mThetaDot;
+    private double mDt;
+
+    @Setup
+    public void setUp()
+    {
+        SimulationConfig.Builder builder = new SimulationConfig.Builder()
+                .setIncludePerturbations(false)
+                .setInitialState(0.5, 0.0);
+
+        SimulationConfig swingConfig = builder.build();
+        mDt = swingConfig.dtS;
+
+        // States from a real run, so the controllers see what they'd see in the simulator
+        mTheta = new double[STATES];
+        mThetaDot = new double[STATES];
+        PendulumModel pendulumModel = swingConfig.createPendulumModel();
+        pendulumModel.setState(swingConfig.initialTheta, swingConfig.initialThetaDot);
+        Controller swingController = swingConfig.createController();
+        for (int i = 0; i < STATES; ++i)
+        {
+            mTheta[i] = pendulumModel.getTheta();
+            mThetaDot[i] = pendulumModel.getThetaDot();
+            pendulumModel.step(swingController.getTorque(mTheta[i], mThetaDot[i]), 10 * mDt);
+        }
+
+        switch (controller)
+        {
+            case "STATE_FEEDBACK":
+                break;
+            case "PID":
+                builder.setUseEigenvaluePlacement(false).setUsePid(true).setKi(5.0);
+                break;
+            case "PID_ANTI_WINDUP":
+                builder.setUseEigenvaluePlacement(false).setUsePid(true).setKi(5.0).setUseAntiWindup(true);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown controller " + controller);
+        }
+        mController = builder.build().createController();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STATES)
+    public double step()
+    {
+        Controller controller = mController;
+        double torque = 0.0;
+        for (int i = 0; i < STATES; ++i)
+        {
+            controller.advance(mTheta[i], mThetaDot[i], mDt);
+            torque += controller.getTorque(mTheta[i], mThetaDot[i]);
+        }
+
+        controller.reset();
+        return torque;
+    }
+}
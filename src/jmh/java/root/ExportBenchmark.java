@@ -0,0 +1,57 @@
+package root;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing the samples of the default scenario out to a temporary file
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExportBenchmark
+{
+    private SimulationResult mResult;
+    private File mFile;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        mResult = new Simulator().run(new SimulationConfig.Builder().build());
+        mFile = File.createTempFile("pendulum-benchmark", ".out");
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        mFile.delete();
+    }
+
+    @Benchmark
+    public void csvTheta()
+    {
+        CsvExporter.saveTheta(mFile.getPath(), mResult);
+    }
+
+    @Benchmark
+    public void csvTorque()
+    {
+        CsvExporter.saveTorque(mFile.getPath(), mResult);
+    }
+
+    @Benchmark
+    public void binary() throws IOException
+    {
+        BinaryTrajectoryWriter.save(mFile.getPath(), mResult);
+    }
+}
@@ -0,0 +1,47 @@
+package root;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The default scenario on the linearized model, integrated with RK4 against the exact zero order hold steps, at the
+ * default step and at one 100 times larger
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LinearBenchmark
+{
+    @Param({"RK4", "ZERO_ORDER_HOLD"})
+    public Integrator.Type integrator;
+
+    @Param({"0.1", "10"})
+    public double dtMs;
+
+    private final Simulator mSimulator = new Simulator();
+    private SimulationConfig mConfig;
+
+    @Setup
+    public void setUp()
+    {
+        mConfig = new SimulationConfig.Builder()
+                .setLinearized(true)
+                .setIntegrator(integrator)
+                .setDtNs(Constants.millisecondsToNanoseconds(dtMs))
+                .build();
+    }
+
+    @Benchmark
+    public RunSummary summarize()
+    {
+        return mSimulator.summarize(mConfig);
+    }
+}
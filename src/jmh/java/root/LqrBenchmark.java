@@ -0,0 +1,71 @@
+package root;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LQR gains solved from scratch and looked up in the cache, for the pendulum and for random plants with more states
+ * and two inputs
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LqrBenchmark
+{
+    @Param({"2", "4", "6", "16"})
+    public int states;
+
+    private Matrix mA;
+    private Matrix mB;
+    private Matrix mQ;
+    private Matrix mR;
+
+    @Setup
+    public void setUp()
+    {
+        mQ = Matrix.identity(states).scaleInPlace(10.0);
+
+        if (states == 2)
+        {
+            PendulumModel pendulumModel = new SimulationConfig.Builder().build().createPendulumModel();
+            mA = pendulumModel.getAMatrix();
+            mB = pendulumModel.getBMatrix();
+            mR = Matrix.identity(1);
+            return;
+        }
+
+        Random random = new Random(0);
+        mA = new Matrix(states, states);
+        mB = new Matrix(2, states);
+        for (int row = 0; row < states; ++row)
+        {
+            for (int column = 0; column < states; ++column)
+                mA.set(column, row, random.nextGaussian());
+
+            mB.set(0, row, random.nextGaussian());
+            mB.set(1, row, random.nextGaussian());
+        }
+        mR = Matrix.identity(2);
+    }
+
+    @Benchmark
+    public Matrix solve()
+    {
+        return Lqr.computeKMatrix(mA, mB, mQ, mR);
+    }
+
+    @Benchmark
+    public Matrix cached()
+    {
+        return Lqr.getKMatrix(mA, mB, mQ, mR);
+    }
+}
@@ -0,0 +1,68 @@
+package root;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The matrix operations the controller design and the old integration loop use, on the 2x2 and 2x1 sizes they run at
+ */
+@State(Scope.Thread)
+public class MatrixBenchmark
+{
+    private Matrix mA;
+    private Matrix mB;
+    private Matrix mState;
+    private Matrix mDestination;
+
+    @Setup
+    public void setUp()
+    {
+        PendulumModel pendulumModel = new SimulationConfig.Builder().build().createPendulumModel();
+        mA = pendulumModel.getAMatrix();
+        mB = mA.clone().scaleInPlace(0.5);
+
+        mState = new Matrix(1, 2);
+        mState.set(0, 0, 0.1);
+        mState.set(0, 1, -0.2);
+
+        mDestination = new Matrix(1, 2);
+    }
+
+    @Benchmark
+    public Matrix multiply()
+    {
+        return mA.multiply(mState);
+    }
+
+    @Benchmark
+    public Matrix multiplyInto()
+    {
+        return mA.multiplyInto(mState, mDestination);
+    }
+
+    @Benchmark
+    public Matrix multiplySquare()
+    {
+        return mA.multiply(mB);
+    }
+
+    @Benchmark
+    public Matrix add()
+    {
+        return mA.add(mB);
+    }
+
+    @Benchmark
+    public Matrix addInPlace()
+    {
+        return mDestination.addInPlace(mState);
+    }
+
+    @Benchmark
+    public Matrix cloneMatrix()
+    {
+        return mA.clone();
+    }
+}
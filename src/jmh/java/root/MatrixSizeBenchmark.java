@@ -0,0 +1,99 @@
+package root;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dense square matrix operations from the size of the pendulum up to the size of larger plants and LQR designs.
+ * multiplyDotProduct is the row by column loop multiplyInto used to be, for comparison.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MatrixSizeBenchmark
+{
+    @Param({"2", "4", "6", "8", "16", "32", "64"})
+    public int size;
+
+    private Matrix mA;
+    private Matrix mB;
+    private Matrix mVector;
+    private Matrix mDestination;
+
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(0);
+        mA = random(random, size, size);
+        mB = random(random, size, size);
+        mVector = random(random, 1, size);
+        mDestination = new Matrix(size, size);
+    }
+
+    @Benchmark
+    public Matrix multiplyInto()
+    {
+        return mA.multiplyInto(mB, mDestination);
+    }
+
+    @Benchmark
+    public Matrix multiplyDotProduct()
+    {
+        for (int row = 0; row < size; ++row)
+        {
+            for (int column = 0; column < size; ++column)
+            {
+                double dotProduct = 0;
+                for (int value = 0; value < size; ++value)
+                    dotProduct += mA.get(value, row) * mB.get(column, value);
+
+                mDestination.set(column, row, dotProduct);
+            }
+        }
+        return mDestination;
+    }
+
+    @Benchmark
+    public LuDecomposition decompose()
+    {
+        return new LuDecomposition(mA);
+    }
+
+    @Benchmark
+    public Matrix solve()
+    {
+        return mA.solve(mVector);
+    }
+
+    @Benchmark
+    public Matrix invert()
+    {
+        return mA.invert();
+    }
+
+    @Benchmark
+    public Matrix exponential()
+    {
+        return mA.exponential();
+    }
+
+    private static Matrix random(Random random, int columns, int rows)
+    {
+        Matrix matrix = new Matrix(columns, rows);
+        for (int column = 0; column < columns; ++column)
+        {
+            for (int row = 0; row < rows; ++row)
+                matrix.set(column, row, random.nextGaussian());
+        }
+        return matrix;
+    }
+}
@@ -0,0 +1,59 @@
+package root;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decimating a long noisy series into a plot and rendering it, which is all a plot of a run of that length costs
+ * besides encoding the file
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PlotBenchmark
+{
+    @Param({"100000", "10000000"})
+    public int samples;
+
+    private double[] mValues;
+    private LinePlot mPlot;
+
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(0);
+        mValues = new double[samples];
+        for (int i = 0; i < samples; ++i)
+            mValues[i] = Math.sin(10.0 * i / samples) + 0.05 * random.nextGaussian();
+
+        mPlot = decimate();
+    }
+
+    @Benchmark
+    public LinePlot decimate()
+    {
+        return LinePlot.of("Theta", mValues, 0, samples, 0.0, 1e-4, Constants.PLOT_WIDTH, Constants.PLOT_HEIGHT);
+    }
+
+    @Benchmark
+    public BufferedImage renderPng()
+    {
+        return mPlot.render();
+    }
+
+    @Benchmark
+    public String renderSvg()
+    {
+        return mPlot.toSvg();
+    }
+}
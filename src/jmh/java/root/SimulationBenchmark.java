@@ -0,0 +1,45 @@
+package root;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The whole default scenario from {@link Constants}, with and without keeping the samples
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SimulationBenchmark
+{
+    @Param({"RK4", "DORMAND_PRINCE"})
+    public Integrator.Type integrator;
+
+    private final Simulator mSimulator = new Simulator();
+    private SimulationConfig mConfig;
+
+    @Setup
+    public void setUp()
+    {
+        mConfig = new SimulationConfig.Builder().setIntegrator(integrator).build();
+    }
+
+    @Benchmark
+    public SimulationResult run()
+    {
+        return mSimulator.run(mConfig);
+    }
+
+    @Benchmark
+    public RunSummary summarize()
+    {
+        return mSimulator.summarize(mConfig);
+    }
+}
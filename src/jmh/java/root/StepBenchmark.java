@@ -0,0 +1,47 @@
+package root;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A single RK4 step of the plant. The gc profiler should show no allocation per operation for either model.
+ */
+@State(Scope.Thread)
+public class StepBenchmark
+{
+    @Param({"true", "false"})
+    public boolean linearized;
+
+    private PendulumModel mPendulumModel;
+    private Integrator mIntegrator;
+    private final TorqueSource mTorqueSource = (theta, thetaDot) -> -(10.0 * theta + 2.0 * thetaDot);
+
+    @Setup
+    public void setUp()
+    {
+        SimulationConfig config = new SimulationConfig.Builder().setLinearized(linearized).build();
+        mPendulumModel = config.createPendulumModel();
+        mPendulumModel.setState(config.initialTheta, config.initialThetaDot);
+        mIntegrator = new Rk4Integrator(config.dtS);
+    }
+
+    @Benchmark
+    public double step()
+    {
+        // Resetting keeps the state from drifting off over millions of invocations
+        mPendulumModel.setState(0.1, 0.0);
+        mPendulumModel.step(0.5, Constants.DT_S);
+        return mPendulumModel.getTheta();
+    }
+
+    @Benchmark
+    public double integratorStep()
+    {
+        mPendulumModel.setState(0.1, 0.0);
+        mIntegrator.advance(mPendulumModel, mTorqueSource, Constants.DT_S);
+        return mPendulumModel.getTheta();
+    }
+}
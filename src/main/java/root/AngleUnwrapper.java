@@ -0,0 +1,50 @@
+package root;
+
+/**
+ * Turns a stream of angles wrapped to [-pi, pi] back into a continuous angle, one sample at a time. Whenever the
+ * wrapped angle jumps by more than pi between two samples it's taken to have gone across the wrap, and a full turn is
+ * added to or taken off the running offset, so any number of rotations in either direction come out right as long as
+ * the pendulum turns less than half a rotation between samples.
+ */
+public class AngleUnwrapper
+{
+    private static final double TWO_PI = 2 * Math.PI;
+
+    private boolean mHasPrevious = false;
+    private double mPreviousWrapped;
+    // Always a whole number of turns
+    private double mOffset = 0.0;
+
+    /**
+     * The continuous angle for the next wrapped sample
+     */
+    public double unwrap(double wrapped)
+    {
+        if (mHasPrevious)
+        {
+            double change = wrapped - mPreviousWrapped;
+            if (change > Math.PI)
+                mOffset -= TWO_PI;
+            else if (change < -Math.PI)
+                mOffset += TWO_PI;
+        }
+
+        mHasPrevious = true;
+        mPreviousWrapped = wrapped;
+        return wrapped + mOffset;
+    }
+
+    /**
+     * How many full turns the unwrapped angle is away from the wrapped one
+     */
+    public long getTurns()
+    {
+        return Math.round(mOffset / TWO_PI);
+    }
+
+    public void reset()
+    {
+        mHasPrevious = false;
+        mOffset = 0.0;
+    }
+}
@@ -0,0 +1,65 @@
+package root;
+
+/**
+ * A PID whose integral stops growing while the output is past the max torque output and the error would push it
+ * further out. Without it the integral keeps winding up for as long as the motor is saturated and then overshoots by
+ * as much once the pendulum comes back. It only decides when to integrate, wrap it in {@link SaturatedController} to
+ * clamp the output too.
+ */
+public class AntiWindupController implements Controller
+{
+    private final PidController mPid;
+    private final double mMaxTorqueOutput;
+
+    public AntiWindupController(PidController pid, double maxTorqueOutput)
+    {
+        if (!(maxTorqueOutput >= 0))
+            throw new IllegalArgumentException("Max torque output can't be negative, got " + maxTorqueOutput);
+
+        mPid = pid;
+        mMaxTorqueOutput = maxTorqueOutput;
+    }
+
+    @Override
+    public double getTorque(double theta, double thetaDot)
+    {
+        return mPid.getTorque(theta, thetaDot);
+    }
+
+    @Override
+    public void advance(double theta, double thetaDot, double dt)
+    {
+        // The integral is subtracted, so the output moves the opposite way to the increment
+        double increment = mPid.getIntegralIncrement(theta, dt);
+        double torque = mPid.getTorque(theta, thetaDot) - increment;
+
+        boolean windingUp = (torque > mMaxTorqueOutput && increment < 0.0)
+                || (torque < -mMaxTorqueOutput && increment > 0.0);
+        if (!windingUp)
+            mPid.advance(theta, thetaDot, dt);
+    }
+
+    @Override
+    public void reset()
+    {
+        mPid.reset();
+    }
+
+    @Override
+    public int getStateSize()
+    {
+        return mPid.getStateSize();
+    }
+
+    @Override
+    public void saveState(double[] state, int offset)
+    {
+        mPid.saveState(state, offset);
+    }
+
+    @Override
+    public void restoreState(double[] state, int offset)
+    {
+        mPid.restoreState(state, offset);
+    }
+}
@@ -0,0 +1,101 @@
+package root;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes samples as little endian doubles, which is several times smaller and faster than CSV and can be mapped
+ * straight back in with {@link MappedTrajectory}. The file is a header of magic, version, sample count and sample
+ * period in seconds, then one record of time, theta, thetaDot and torque per sample. The sample count is filled in
+ * when the writer is closed.
+ */
+public class BinaryTrajectoryWriter implements SampleListener, Closeable
+{
+    static final int MAGIC = 0x50454E44; // "PEND"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 24;
+    static final int SAMPLE_COUNT_OFFSET = 8;
+    static final int SAMPLE_PERIOD_OFFSET = 16;
+    static final int COLUMNS = 4;
+    static final int RECORD_SIZE = COLUMNS * Double.BYTES;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel mChannel;
+    private final ByteBuffer mBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final double mSamplePeriodS;
+    private long mSampleCount = 0;
+
+    public BinaryTrajectoryWriter(String fileName, long samplePeriodNs) throws IOException
+    {
+        mChannel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        mSamplePeriodS = Constants.nanosecondsToSeconds(samplePeriodNs);
+
+        // Space for the header, which is written for real on close once the sample count is known
+        mBuffer.position(HEADER_SIZE);
+    }
+
+    public static void save(String fileName, SimulationResult result) throws IOException
+    {
+        Trajectory trajectory = result.getTrajectory();
+
+        try (BinaryTrajectoryWriter writer = new BinaryTrajectoryWriter(fileName, result.getConfig().saveStateEveryXNs))
+        {
+            for (int i = trajectory.getStartSample(); i < trajectory.getEndSample(); ++i)
+            {
+                writer.onSample(i, trajectory.getTime(i), trajectory.getTheta(i), trajectory.getThetaDot(i),
+                        trajectory.getTorque(i));
+            }
+        }
+    }
+
+    @Override
+    public void onSample(int sample, double time, double theta, double thetaDot, double torque)
+    {
+        try
+        {
+            if (mBuffer.remaining() < RECORD_SIZE)
+                flush();
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        mBuffer.putDouble(time).putDouble(theta).putDouble(thetaDot).putDouble(torque);
+        ++mSampleCount;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putLong(mSampleCount).putDouble(mSamplePeriodS).flip();
+            while (header.hasRemaining())
+                mChannel.write(header, header.position());
+            Metrics.add(Metrics.Counter.EXPORT_BYTES, HEADER_SIZE);
+        } finally
+        {
+            mChannel.close();
+        }
+    }
+
+    private void flush() throws IOException
+    {
+        mBuffer.flip();
+        Metrics.add(Metrics.Counter.EXPORT_BYTES, mBuffer.remaining());
+        while (mBuffer.hasRemaining())
+            mChannel.write(mBuffer);
+        mBuffer.clear();
+    }
+}
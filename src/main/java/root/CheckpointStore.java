@@ -0,0 +1,214 @@
+package root;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Gets the sample at any time of a run without keeping every sample, by keeping the full state of the run only every
+ * samplesPerCheckpoint samples and simulating forward from the nearest checkpoint at or before the requested sample.
+ * Checkpoints are added by {@link #simulate} as a run goes forward and by {@link #seek} as it replays.
+ * <p>
+ * At most maxCheckpoints are kept, so memory stays fixed however long the run is. Half of them are anchors spread
+ * evenly over the whole run that are never evicted, which bounds how far a seek ever has to replay. The rest are kept
+ * in between the anchors, evicting the least recently used, so scrubbing around the same times stays fast.
+ * <p>
+ * {@link #seek} and the getters are meant for a single thread, while {@link #simulate} can run on another one at the
+ * same time.
+ */
+public class CheckpointStore
+{
+    private final SimulationConfig mConfig;
+    private final int mSamplesPerCheckpoint;
+    private final int mMaxCheckpoints;
+
+    // Every mAnchorStride-th checkpoint is an anchor, anchor 0 is the start of the run
+    private final int mAnchorStride;
+    private final SimulationRun.Checkpoint[] mAnchors;
+    // The rest keyed by checkpoint number, in access order for the eviction. Both are locked on mCheckpoints.
+    private final Map<Integer, SimulationRun.Checkpoint> mCheckpoints;
+
+    // The run replayed by seek, and the sample it last saved
+    private final SimulationRun mCursor;
+    private final RunSummary mCursorSummary = new RunSummary();
+    private final SampleListener mCursorListener = this::setCurrentSample;
+    private int mCurrentSample = -1;
+    private double mTime;
+    private double mTheta;
+    private double mThetaDot;
+    private double mTorque;
+
+    public CheckpointStore(SimulationConfig config, int samplesPerCheckpoint, int maxCheckpoints)
+    {
+        if (samplesPerCheckpoint < 1 || maxCheckpoints < 1)
+            throw new IllegalArgumentException("Need at least 1 sample per checkpoint and 1 checkpoint");
+
+        mConfig = config;
+        mSamplesPerCheckpoint = samplesPerCheckpoint;
+        mMaxCheckpoints = maxCheckpoints;
+
+        int anchorCount = Math.max(1, maxCheckpoints / 2);
+        int checkpointCount = (config.getSampleCount() + samplesPerCheckpoint - 1) / samplesPerCheckpoint;
+        mAnchorStride = Math.max(1, (checkpointCount + anchorCount - 1) / anchorCount);
+        mAnchors = new SimulationRun.Checkpoint[anchorCount];
+
+        mCheckpoints = new LinkedHashMap<Integer, SimulationRun.Checkpoint>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, SimulationRun.Checkpoint> eldest)
+            {
+                return size() > mMaxCheckpoints - mAnchors.length;
+            }
+        };
+
+        mCursor = new SimulationRun(config);
+        mAnchors[0] = mCursor.checkpoint();
+    }
+
+    /**
+     * A store with the checkpoint spacing and count from {@link Constants}
+     */
+    public static CheckpointStore fromConstants(SimulationConfig config)
+    {
+        int samplesPerCheckpoint = (int) Math.max(1, Constants.CHECKPOINT_EVERY_X_NS / config.saveStateEveryXNs);
+        return new CheckpointStore(config, samplesPerCheckpoint, Constants.MAX_CHECKPOINTS);
+    }
+
+    /**
+     * Runs the whole config forward, handing every sample to listener and checkpointing along the way, and returns the
+     * summary of the run
+     */
+    public RunSummary simulate(SampleListener listener)
+    {
+        SimulationRun run = new SimulationRun(mConfig);
+        RunSummary summary = new RunSummary();
+
+        while (true)
+        {
+            addCheckpointIfDue(run);
+            if (!run.advance(listener, summary))
+                return summary;
+        }
+    }
+
+    /**
+     * Makes sample the current one, replaying from the nearest checkpoint unless it's a short way ahead of the current
+     * sample
+     */
+    public void seek(int sample)
+    {
+        if (sample < 0 || sample >= mConfig.getSampleCount())
+            throw new IndexOutOfBoundsException("Sample " + sample + " is not in the run of " + mConfig.getSampleCount());
+
+        if (sample == mCurrentSample)
+            return;
+
+        // Playing forward a sample at a time just keeps going from where the cursor is
+        boolean closeAhead = sample > mCurrentSample && sample - mCurrentSample <= mSamplesPerCheckpoint;
+        if (!closeAhead)
+            mCursor.restore(getCheckpointAtOrBefore(sample));
+
+        while (mCursor.getNextSample() <= sample)
+        {
+            addCheckpointIfDue(mCursor);
+            mCursor.advance(mCursorListener, mCursorSummary);
+        }
+    }
+
+    public int getCurrentSample()
+    {
+        return mCurrentSample;
+    }
+
+    public double getTime()
+    {
+        return mTime;
+    }
+
+    public double getTheta()
+    {
+        return mTheta;
+    }
+
+    public double getThetaDot()
+    {
+        return mThetaDot;
+    }
+
+    public double getTorque()
+    {
+        return mTorque;
+    }
+
+    public int getCheckpointCount()
+    {
+        synchronized (mCheckpoints)
+        {
+            int count = mCheckpoints.size();
+            for (SimulationRun.Checkpoint anchor : mAnchors)
+            {
+                if (anchor != null)
+                    ++count;
+            }
+            return count;
+        }
+    }
+
+    public int getSamplesPerCheckpoint()
+    {
+        return mSamplesPerCheckpoint;
+    }
+
+    private void setCurrentSample(int sample, double time, double theta, double thetaDot, double torque)
+    {
+        mCurrentSample = sample;
+        mTime = time;
+        mTheta = theta;
+        mThetaDot = thetaDot;
+        mTorque = torque;
+    }
+
+    private void addCheckpointIfDue(SimulationRun run)
+    {
+        int nextSample = run.getNextSample();
+        if (nextSample == 0 || nextSample % mSamplesPerCheckpoint != 0 || !run.hasNextSample())
+            return;
+
+        int checkpoint = nextSample / mSamplesPerCheckpoint;
+
+        synchronized (mCheckpoints)
+        {
+            if (checkpoint % mAnchorStride == 0)
+            {
+                if (mAnchors[checkpoint / mAnchorStride] == null)
+                    mAnchors[checkpoint / mAnchorStride] = run.checkpoint();
+            } else if (mCheckpoints.get(checkpoint) == null)
+            {
+                // Replaying over a checkpoint that's still there counts as using it
+                mCheckpoints.put(checkpoint, run.checkpoint());
+            }
+        }
+    }
+
+    private SimulationRun.Checkpoint getCheckpointAtOrBefore(int sample)
+    {
+        int checkpoint = sample / mSamplesPerCheckpoint;
+        int anchor = checkpoint / mAnchorStride;
+
+        synchronized (mCheckpoints)
+        {
+            // Any checkpoint between the anchor and the sample is closer to it than the anchor
+            for (int i = checkpoint; i > anchor * mAnchorStride; --i)
+            {
+                SimulationRun.Checkpoint found = mCheckpoints.get(i);
+                if (found != null)
+                    return found;
+            }
+
+            // Anchors past where the forward run has got to aren't there yet
+            while (mAnchors[anchor] == null)
+                --anchor;
+
+            return mAnchors[anchor];
+        }
+    }
+}
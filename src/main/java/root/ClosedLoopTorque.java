@@ -0,0 +1,60 @@
+package root;
+
+/**
+ * The controller from the config plus whatever perturbation is active
+ */
+class ClosedLoopTorque implements TorqueSource
+{
+    private final Controller mController;
+
+    double perturbationTorque = 0.0;
+
+    private boolean mSaturated = false;
+
+    ClosedLoopTorque(Controller controller)
+    {
+        mController = controller;
+    }
+
+    Controller getController()
+    {
+        return mController;
+    }
+
+    void advanceController(double theta, double thetaDot, double dt)
+    {
+        mController.advance(theta, thetaDot, dt);
+    }
+
+    /**
+     * The torque the controller puts out once per controller period, which is also when saturation is counted
+     */
+    double getControllerTorque(double theta, double thetaDot)
+    {
+        mSaturated = mController.isSaturated(theta, thetaDot);
+        if (mSaturated)
+            Metrics.increment(Metrics.Counter.SATURATIONS);
+
+        return computeTorque(theta, thetaDot);
+    }
+
+    /**
+     * Whether the last {@link #getControllerTorque} was clamped
+     */
+    boolean isSaturated()
+    {
+        return mSaturated;
+    }
+
+    @Override
+    public double getTorque(double theta, double thetaDot)
+    {
+        return computeTorque(theta, thetaDot) + perturbationTorque;
+    }
+
+    private double computeTorque(double theta, double thetaDot)
+    {
+        Metrics.increment(Metrics.Counter.CONTROLLER_COMPUTATIONS);
+        return mController.getTorque(theta, thetaDot);
+    }
+}
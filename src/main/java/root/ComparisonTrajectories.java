@@ -0,0 +1,118 @@
+package root;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Theta of many runs kept side by side in one float array, ordered by sample and then by run, so everything needed to
+ * draw one moment of every run is next to each other in memory. Floats are plenty for drawing and halve the memory of
+ * long runs. A run that's shorter than the longest one holds its last sample.
+ */
+public class ComparisonTrajectories
+{
+    private final float[] mTheta;
+    private final boolean[] mFell;
+    private final int mRunCount;
+    private final int mSampleCount;
+    private final long mSamplePeriodNs;
+
+    private ComparisonTrajectories(float[] theta, boolean[] fell, int sampleCount, long samplePeriodNs)
+    {
+        mTheta = theta;
+        mFell = fell;
+        mRunCount = fell.length;
+        mSampleCount = sampleCount;
+        mSamplePeriodNs = samplePeriodNs;
+    }
+
+    /**
+     * Runs every config in parallel. If there's a shared {@link ResultCache}, runs stored in it are replayed and the
+     * rest are stored as they're simulated. They all have to save samples at the same interval so that the same sample
+     * is the same time in every run.
+     */
+    public static ComparisonTrajectories simulate(List<SimulationConfig> configs)
+    {
+        if (configs.isEmpty())
+            throw new IllegalArgumentException("Nothing to compare");
+
+        long samplePeriodNs = configs.get(0).saveStateEveryXNs;
+        int sampleCount = 1;
+        for (SimulationConfig config : configs)
+        {
+            if (config.saveStateEveryXNs != samplePeriodNs)
+            {
+                throw new IllegalArgumentException("Compared runs must save samples at the same interval, got "
+                        + samplePeriodNs + " ns and " + config.saveStateEveryXNs + " ns");
+            }
+            sampleCount = Math.max(sampleCount, config.getSampleCount());
+        }
+
+        int runCount = configs.size();
+        if ((long) runCount * sampleCount > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException(runCount + " runs of " + sampleCount + " samples are too many to compare");
+
+        float[] theta = new float[runCount * sampleCount];
+        int[] savedSamples = new int[runCount];
+        boolean[] fell = new boolean[runCount];
+        int finalSampleCount = sampleCount;
+
+        Simulator simulator = new Simulator(ResultCache.getShared());
+        RunSummary[] summaries = new RunSummary[runCount];
+        Arrays.parallelSetAll(summaries, run -> simulator.stream(configs.get(run),
+                (sample, time, sampleTheta, thetaDot, torque) ->
+                {
+                    if (sample < finalSampleCount)
+                    {
+                        theta[sample * runCount + run] = (float) sampleTheta;
+                        savedSamples[run] = sample + 1;
+                    }
+                }));
+
+        for (int run = 0; run < runCount; ++run)
+        {
+            fell[run] = summaries[run].fell();
+
+            int lastSample = savedSamples[run] - 1;
+            if (lastSample < 0)
+                continue;
+
+            for (int sample = lastSample + 1; sample < sampleCount; ++sample)
+                theta[sample * runCount + run] = theta[lastSample * runCount + run];
+        }
+
+        return new ComparisonTrajectories(theta, fell, sampleCount, samplePeriodNs);
+    }
+
+    public int getRunCount()
+    {
+        return mRunCount;
+    }
+
+    public int getSampleCount()
+    {
+        return mSampleCount;
+    }
+
+    public long getSamplePeriodNs()
+    {
+        return mSamplePeriodNs;
+    }
+
+    /**
+     * The time of the last sample of the longest run
+     */
+    public long getDurationNs()
+    {
+        return (mSampleCount - 1) * mSamplePeriodNs;
+    }
+
+    public double getTheta(int run, int sample)
+    {
+        return mTheta[sample * mRunCount + run];
+    }
+
+    public boolean fell(int run)
+    {
+        return mFell[run];
+    }
+}
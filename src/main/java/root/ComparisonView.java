@@ -0,0 +1,127 @@
+package root;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.StrokeLineCap;
+
+/**
+ * Draws every run of a {@link ComparisonTrajectories} on one Canvas, each in its own tile or all from one axle on top
+ * of each other. A frame is one path for the runs that stayed up and one for the runs that fell, stroked once each,
+ * so there's no node per pendulum and hundreds of them cost about as much to draw as a few.
+ */
+public class ComparisonView
+{
+    private static final Color BACKGROUND = Color.web("#262626");
+    private static final Color UPRIGHT = Color.web("#dddddd");
+    private static final Color FELL = Color.web("#cc3333");
+    // Pendulums reach this fraction of the way from the middle of their tile to its edge
+    private static final double LENGTH_FRACTION = 0.9;
+
+    private final Canvas mCanvas;
+    private ComparisonTrajectories mTrajectories;
+    private boolean mOverlaid = false;
+
+    public ComparisonView(double width, double height)
+    {
+        mCanvas = new Canvas(width, height);
+    }
+
+    public Canvas getCanvas()
+    {
+        return mCanvas;
+    }
+
+    public ComparisonTrajectories getTrajectories()
+    {
+        return mTrajectories;
+    }
+
+    public void setTrajectories(ComparisonTrajectories trajectories)
+    {
+        mTrajectories = trajectories;
+    }
+
+    public boolean isOverlaid()
+    {
+        return mOverlaid;
+    }
+
+    public void setOverlaid(boolean overlaid)
+    {
+        mOverlaid = overlaid;
+    }
+
+    /**
+     * Draws every run at timeNs, interpolating between the samples either side of it
+     */
+    public void draw(double timeNs)
+    {
+        double width = mCanvas.getWidth();
+        double height = mCanvas.getHeight();
+
+        GraphicsContext graphics = mCanvas.getGraphicsContext2D();
+        // Covering the whole canvas also lets JavaFX drop the commands from earlier frames
+        graphics.setGlobalAlpha(1.0);
+        graphics.setFill(BACKGROUND);
+        graphics.fillRect(0, 0, width, height);
+
+        ComparisonTrajectories trajectories = mTrajectories;
+        if (trajectories == null)
+            return;
+
+        int runCount = trajectories.getRunCount();
+        double position = Math.max(0, Math.min(timeNs / trajectories.getSamplePeriodNs(),
+                trajectories.getSampleCount() - 1));
+        int sample = (int) position;
+        int nextSample = Math.min(sample + 1, trajectories.getSampleCount() - 1);
+        double fraction = position - sample;
+
+        int columns = 1;
+        int rows = 1;
+        if (mOverlaid)
+        {
+            // Faint enough that where most of them are shows up brighter
+            graphics.setGlobalAlpha(Math.max(0.1, Math.min(1.0, 10.0 / runCount)));
+        } else
+        {
+            // As many columns as keeps the tiles square and fills the canvas, the last row can be part full
+            columns = (int) Math.ceil(Math.sqrt(runCount * width / height));
+            rows = (runCount + columns - 1) / columns;
+        }
+
+        double tileSize = Math.min(width / columns, height / rows);
+        double length = tileSize / 2 * LENGTH_FRACTION;
+        double left = (width - columns * tileSize) / 2;
+        double top = (height - rows * tileSize) / 2;
+        graphics.setLineWidth(Math.max(1.0, length / 12));
+        graphics.setLineCap(StrokeLineCap.ROUND);
+
+        for (int pass = 0; pass < 2; ++pass)
+        {
+            boolean fell = pass == 1;
+            graphics.setStroke(fell ? FELL : UPRIGHT);
+            graphics.beginPath();
+
+            for (int run = 0; run < runCount; ++run)
+            {
+                if (trajectories.fell(run) != fell)
+                    continue;
+
+                int tile = mOverlaid ? 0 : run;
+                double axleX = left + (tile % columns + 0.5) * tileSize;
+                double axleY = top + (tile / columns + 0.5) * tileSize;
+
+                // Interpolated the short way round, so it doesn't spin when it wraps at +-pi
+                double theta = trajectories.getTheta(run, sample);
+                theta += PendulumModel.getBoundedAngle(trajectories.getTheta(run, nextSample) - theta) * fraction;
+
+                // Upright is theta 0 and positive theta leans left, the same as the single pendulum view
+                graphics.moveTo(axleX, axleY);
+                graphics.lineTo(axleX - length * Math.sin(theta), axleY - length * Math.cos(theta));
+            }
+
+            graphics.stroke();
+        }
+    }
+}
@@ -11,12 +11,33 @@ public class Constants
     public static final boolean START_WITH_SIMULATION_RUNNING = true;
     public static final boolean USE_PID = false;
     public static final boolean USE_EIGENVALUE_PLACEMENT = true;
+    // Overrides eigenvalue placement when both are on
+    public static final boolean USE_LQR = false;
+    // Holds the PID integral while the output is saturated
+    public static final boolean USE_ANTI_WINDUP = false;
     public static final double OFFSET = 0.0 * Math.PI / 180.0;
     public static final boolean INCLUDE_PERTURBATIONS = true;
     public static final boolean SAVE_TO_CSV = true;
     public static final boolean SAVE_THETA = true;
     public static final boolean SAVE_TORQUE = true;
-    public static final boolean FIX_STUPID_PLOTS = true;
+    // Every sample as little endian doubles, see BinaryTrajectoryWriter
+    public static final boolean SAVE_TO_BINARY = false;
+
+    // Samples the simulation thread can get ahead of the animation before it waits for it
+    public static final int SAMPLE_QUEUE_CAPACITY = 4096;
+    // The animation keeps this many of the newest samples, anything older is replayed from the nearest checkpoint
+    public static final int PLAYBACK_BUFFER_SAMPLES = 1024;
+    // Simulated seconds played per real second, the speed slider goes from the min to the max on a log scale
+    public static final double PLAYBACK_SPEED = 1.0;
+    public static final double MIN_PLAYBACK_SPEED = 0.1;
+    public static final double MAX_PLAYBACK_SPEED = 100.0;
+    public static final long CHECKPOINT_EVERY_X_NS = secondsToNanoseconds(1);
+    // A checkpoint is under 100 bytes, half of them are spread over the whole run however long it is
+    public static final int MAX_CHECKPOINTS = 4096;
+    // Theta in the csv and the plots carries on past +-pi instead of jumping a full turn whenever it wraps
+    public static final boolean UNWRAP_THETA = true;
+    // Results kept in memory in front of the files when -Dpendulum.cache.dir turns on the ResultCache
+    public static final long RESULT_CACHE_MEMORY_BYTES = 64L * 1024 * 1024;
     public static final boolean LINEARIZED = false;
 
     // When false, PID is calculated with PD only
@@ -26,8 +47,25 @@ public class Constants
     public static final double EIGENVALUE_1 = -3;
     public static final double EIGENVALUE_2 = -60;
 
+    // Weights of theta^2, thetaDot^2 and torque^2 in the cost LQR minimizes
+    public static final double LQR_THETA_WEIGHT = 1000.0;
+    public static final double LQR_THETA_DOT_WEIGHT = 50.0;
+    public static final double LQR_TORQUE_WEIGHT = 1.0;
+
     public static final double MAX_TORQUE_OUTPUT = 2.5;
 
+    // Used for the run summaries, theta has to stay within the tolerance to count as settled and the pendulum has
+    // fallen once it gets past horizontal
+    public static final double SETTLED_THETA_TOLERANCE = 2.0 * Math.PI / 180.0;
+    public static final double FALLEN_THETA = Math.PI / 2;
+
+    // Monte Carlo standard deviations, relative to the nominal value for the plant and absolute for the initial state
+    public static final double MASS_UNCERTAINTY = 0.1;
+    public static final double LENGTH_UNCERTAINTY = 0.1;
+    public static final double VISCOUS_FRICTION_UNCERTAINTY = 0.5;
+    public static final double INITIAL_THETA_UNCERTAINTY = 5.0 * Math.PI / 180.0;
+    public static final double INITIAL_THETA_DOT_UNCERTAINTY = 0.2;
+
     public static final double KU = 20.0;
     public static final double TU = 0.57;
 
@@ -40,6 +78,12 @@ public class Constants
     public static final long DT_NS = millisecondsToNanoseconds(0.1);
     public static final double DT_S = nanosecondsToSeconds(DT_NS);
 
+    // DORMAND_PRINCE ignores DT_NS as a step size and picks its own steps to meet the tolerances. ZERO_ORDER_HOLD is
+    // exact for the linearized model at any DT_NS, and can't be used without it.
+    public static final Integrator.Type INTEGRATOR = Integrator.Type.RK4;
+    public static final double ABSOLUTE_TOLERANCE = 1e-9;
+    public static final double RELATIVE_TOLERANCE = 1e-7;
+
     // theta, angular velocity
     public static Matrix INITIAL_STATE = new Matrix(new ArrayList<>(Collections.singletonList(new ArrayList<>(Arrays.asList(OFFSET, 0.0)))));
 
@@ -47,6 +91,9 @@ public class Constants
             new Perturbation(secondsToNanoseconds(0), 2.3, secondsToNanoseconds(0.5))
     ));
 
+    // Lazily generated perturbations on top of the ones listed above, e.g. periodic impulses or random noise bursts
+    public static ArrayList<PerturbationGenerator> PERTURBATION_GENERATORS = new ArrayList<>();
+
     public static final double PENDULUM_WIDTH = 0.05;
     public static final double PENDULUM_LENGTH = 0.8;
     public static final double PENDULUM_MASS = 1.0;
@@ -55,6 +102,8 @@ public class Constants
 
     public static final double FRAME_WIDTH = 500;
     public static final double FRAME_HEIGHT = 350;
+    public static final int PLOT_WIDTH = 800;
+    public static final int PLOT_HEIGHT = 400;
 
     public static final double PIXELS_PER_METER = 250;
     public static final double OFFSET_FROM_BOTTOM = 100;
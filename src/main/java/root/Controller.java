@@ -0,0 +1,54 @@
+package root;
+
+/**
+ * A feedback law from the pendulum's state to a torque. Controllers can keep state from one update to the next, like
+ * the PID integral, and wrap one another, so a clamped PID with anti-windup is {@link SaturatedController} around
+ * {@link AntiWindupController} around {@link PidController}. Nothing is allocated once a controller is built, so the
+ * same instance can be driven by the simulator, a sweep or the real-time loop.
+ * <p>
+ * The loop calls {@link #advance} once per controller period with the measured state and then {@link #getTorque}.
+ * Adaptive integrators call getTorque at every stage in between, so getTorque and {@link #isSaturated} never change
+ * the internal state.
+ */
+public interface Controller
+{
+    double getTorque(double theta, double thetaDot);
+
+    /**
+     * Moves the internal state on by dt with the measured state, before the torque for that state is asked for
+     */
+    default void advance(double theta, double thetaDot, double dt)
+    {
+    }
+
+    /**
+     * Back to the state it was built with
+     */
+    default void reset()
+    {
+    }
+
+    /**
+     * Whether the torque for this state is clamped to the max torque output
+     */
+    default boolean isSaturated(double theta, double thetaDot)
+    {
+        return false;
+    }
+
+    /**
+     * How many values {@link #saveState} writes, so a run can be checkpointed and resumed exactly
+     */
+    default int getStateSize()
+    {
+        return 0;
+    }
+
+    default void saveState(double[] state, int offset)
+    {
+    }
+
+    default void restoreState(double[] state, int offset)
+    {
+    }
+}
@@ -0,0 +1,132 @@
+package root;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes one column of the samples against time as CSV while a run is going. Lines are formatted into a reused
+ * StringBuilder and copied into a direct buffer that's written out whenever it fills up, so nothing is allocated per
+ * sample and the file never has to be built up in memory. The numbers are formatted the same way as String.valueOf.
+ */
+public class CsvExporter implements SampleListener, Closeable
+{
+    public enum Column
+    {
+        THETA,
+        TORQUE
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel mChannel;
+    private final ByteBuffer mBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final StringBuilder mLine = new StringBuilder(64);
+
+    private final Column mColumn;
+    private final long mSamplePeriodNs;
+    private final double mSamplePeriodS;
+
+    private final AngleUnwrapper mUnwrapper = new AngleUnwrapper();
+
+    public CsvExporter(String fileName, Column column, long samplePeriodNs) throws IOException
+    {
+        mChannel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        mColumn = column;
+        mSamplePeriodNs = samplePeriodNs;
+        mSamplePeriodS = Constants.nanosecondsToSeconds(samplePeriodNs);
+    }
+
+    public static CsvExporter theta(String fileName, SimulationConfig config) throws IOException
+    {
+        return new CsvExporter(fileName, Column.THETA, config.saveStateEveryXNs);
+    }
+
+    public static CsvExporter torque(String fileName, SimulationConfig config) throws IOException
+    {
+        return new CsvExporter(fileName, Column.TORQUE, config.saveStateEveryXNs);
+    }
+
+    public static void saveTheta(String fileName, SimulationResult result)
+    {
+        save(fileName, Column.THETA, result);
+    }
+
+    public static void saveTorque(String fileName, SimulationResult result)
+    {
+        save(fileName, Column.TORQUE, result);
+    }
+
+    private static void save(String fileName, Column column, SimulationResult result)
+    {
+        Trajectory trajectory = result.getTrajectory();
+
+        try (CsvExporter exporter = new CsvExporter(fileName, column, result.getConfig().saveStateEveryXNs))
+        {
+            for (int i = trajectory.getStartSample(); i < trajectory.getEndSample(); ++i)
+            {
+                exporter.onSample(i, trajectory.getTime(i), trajectory.getTheta(i), trajectory.getThetaDot(i),
+                        trajectory.getTorque(i));
+            }
+        } catch (IOException | UncheckedIOException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void onSample(int sample, double time, double theta, double thetaDot, double torque)
+    {
+        mLine.setLength(0);
+
+        if (mColumn == Column.THETA)
+        {
+            if (Constants.UNWRAP_THETA)
+                theta = mUnwrapper.unwrap(theta);
+
+            mLine.append(Constants.nanosecondsToSeconds(sample * mSamplePeriodNs)).append(',').append(theta);
+        } else
+        {
+            mLine.append(sample * mSamplePeriodS).append(',').append(torque);
+        }
+        mLine.append('\n');
+
+        try
+        {
+            if (mBuffer.remaining() < mLine.length())
+                flush();
+
+            for (int i = 0; i < mLine.length(); ++i)
+                mBuffer.put((byte) mLine.charAt(i));
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            flush();
+        } finally
+        {
+            mChannel.close();
+        }
+    }
+
+    private void flush() throws IOException
+    {
+        mBuffer.flip();
+        Metrics.add(Metrics.Counter.EXPORT_BYTES, mBuffer.remaining());
+        while (mBuffer.hasRemaining())
+            mChannel.write(mBuffer);
+        mBuffer.clear();
+    }
+}
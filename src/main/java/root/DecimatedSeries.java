@@ -0,0 +1,159 @@
+package root;
+
+/**
+ * A series of a known number of samples squeezed down to a fixed number of buckets, one per pixel column, keeping the
+ * first, last, smallest and largest value in each. A vertical line through each bucket's range, joined to the next
+ * bucket from its last value, draws exactly what drawing every sample would, in memory that doesn't depend on how long
+ * the series is. Values can be added one at a time while they're produced or a whole array at once.
+ */
+public class DecimatedSeries
+{
+    private final int mBucketCount;
+    private final int mSampleCount;
+
+    private final double[] mFirst;
+    private final double[] mLast;
+    private final double[] mMin;
+    private final double[] mMax;
+    private final boolean[] mFilled;
+
+    private int mAdded = 0;
+    // The bucket the last value went into and the first sample of the one after it
+    private int mBucket = -1;
+    private int mNextBucketStart = 0;
+
+    public DecimatedSeries(int bucketCount, int sampleCount)
+    {
+        if (bucketCount < 1 || sampleCount < 0)
+            throw new IllegalArgumentException("Need at least one bucket and no fewer than zero samples, got "
+                    + bucketCount + " and " + sampleCount);
+
+        mBucketCount = bucketCount;
+        mSampleCount = sampleCount;
+        mFirst = new double[bucketCount];
+        mLast = new double[bucketCount];
+        mMin = new double[bucketCount];
+        mMax = new double[bucketCount];
+        mFilled = new boolean[bucketCount];
+    }
+
+    public void add(double value)
+    {
+        if (mAdded == mSampleCount)
+            throw new IllegalStateException("Series is already full with " + mSampleCount + " samples");
+
+        // Skips the empty buckets when there are fewer samples than buckets
+        while (mAdded >= mNextBucketStart)
+            mNextBucketStart = getBucketStart(++mBucket + 1);
+
+        int bucket = mBucket;
+        if (!mFilled[bucket])
+        {
+            mFilled[bucket] = true;
+            mFirst[bucket] = value;
+            mMin[bucket] = value;
+            mMax[bucket] = value;
+        } else if (value < mMin[bucket])
+        {
+            mMin[bucket] = value;
+        } else if (value > mMax[bucket])
+        {
+            mMax[bucket] = value;
+        }
+
+        mLast[bucket] = value;
+        ++mAdded;
+    }
+
+    /**
+     * Adds values[from] to values[to - 1] in order
+     */
+    public void addAll(double[] values, int from, int to)
+    {
+        if (to - from > mSampleCount - mAdded)
+            throw new IllegalStateException("Series only has room for " + (mSampleCount - mAdded) + " more samples");
+
+        int i = from;
+        while (i < to)
+        {
+            add(values[i++]);
+
+            // The rest of the bucket in one loop over the array
+            int end = (int) Math.min(to, (long) i + mNextBucketStart - mAdded);
+            if (end > i)
+            {
+                int bucket = mBucket;
+                double min = mMin[bucket];
+                double max = mMax[bucket];
+                for (int j = i; j < end; ++j)
+                {
+                    double value = values[j];
+                    if (value < min)
+                        min = value;
+                    if (value > max)
+                        max = value;
+                }
+
+                mMin[bucket] = min;
+                mMax[bucket] = max;
+                mLast[bucket] = values[end - 1];
+                mAdded += end - i;
+                i = end;
+            }
+        }
+    }
+
+    public int getBucketCount()
+    {
+        return mBucketCount;
+    }
+
+    public int getSampleCount()
+    {
+        return mSampleCount;
+    }
+
+    /**
+     * How many samples have been added so far
+     */
+    public int size()
+    {
+        return mAdded;
+    }
+
+    /**
+     * False for buckets no sample has gone into, either yet or at all because there are fewer samples than buckets
+     */
+    public boolean isFilled(int bucket)
+    {
+        return mFilled[bucket];
+    }
+
+    public double getFirst(int bucket)
+    {
+        return mFirst[bucket];
+    }
+
+    public double getLast(int bucket)
+    {
+        return mLast[bucket];
+    }
+
+    public double getMin(int bucket)
+    {
+        return mMin[bucket];
+    }
+
+    public double getMax(int bucket)
+    {
+        return mMax[bucket];
+    }
+
+    /**
+     * The first sample that goes into bucket, sample i goes into bucket i * bucketCount / sampleCount rounded down
+     */
+    private int getBucketStart(int bucket)
+    {
+        return (int) (((long) bucket * mSampleCount + mBucketCount - 1) / mBucketCount);
+    }
+}
@@ -0,0 +1,161 @@
+package root;
+
+/**
+ * Embedded RK45 (Dormand-Prince) with adaptive step size. The difference between the 5th and 4th order solutions
+ * estimates the error of each step, steps over the tolerance are retried smaller and the step grows again while the
+ * solution is smooth. The torque source is evaluated at every stage, so the controller acts continuously.
+ */
+public class DormandPrinceIntegrator implements Integrator
+{
+    // The system is time invariant, so only the stage weights are needed and not the stage times
+    private static final double A21 = 1.0 / 5.0;
+    private static final double A31 = 3.0 / 40.0, A32 = 9.0 / 40.0;
+    private static final double A41 = 44.0 / 45.0, A42 = -56.0 / 15.0, A43 = 32.0 / 9.0;
+    private static final double A51 = 19372.0 / 6561.0, A52 = -25360.0 / 2187.0, A53 = 64448.0 / 6561.0,
+            A54 = -212.0 / 729.0;
+    private static final double A61 = 9017.0 / 3168.0, A62 = -355.0 / 33.0, A63 = 46732.0 / 5247.0, A64 = 49.0 / 176.0,
+            A65 = -5103.0 / 18656.0;
+
+    // 5th order weights, which are also the coefficients of the last stage so its derivative can be reused
+    private static final double B1 = 35.0 / 384.0, B3 = 500.0 / 1113.0, B4 = 125.0 / 192.0, B5 = -2187.0 / 6784.0,
+            B6 = 11.0 / 84.0;
+
+    // Difference between the 5th and 4th order weights
+    private static final double E1 = 71.0 / 57600.0, E3 = -71.0 / 16695.0, E4 = 71.0 / 1920.0,
+            E5 = -17253.0 / 339200.0, E6 = 22.0 / 525.0, E7 = -1.0 / 40.0;
+
+    private static final double SAFETY = 0.9;
+    private static final double MIN_SCALE = 0.2;
+    private static final double MAX_SCALE = 5.0;
+    private static final double MIN_STEP_SIZE = 1e-12;
+
+    private final double mAbsoluteTolerance;
+    private final double mRelativeTolerance;
+    private final double mMaxStepSize;
+
+    // Carried over between calls so the next segment starts from the step size that last worked
+    private double mStepSize;
+
+    public DormandPrinceIntegrator(double absoluteTolerance, double relativeTolerance, double initialStepSize,
+                                   double maxStepSize)
+    {
+        mAbsoluteTolerance = absoluteTolerance;
+        mRelativeTolerance = relativeTolerance;
+        mMaxStepSize = maxStepSize;
+        mStepSize = initialStepSize;
+    }
+
+    @Override
+    public int advance(PendulumModel model, TorqueSource torqueSource, double duration)
+    {
+        if (duration <= 0.0)
+            return 0;
+
+        double theta = model.getTheta();
+        double thetaDot = model.getThetaDot();
+
+        int evaluations = 1;
+        double k1Theta = thetaDot;
+        double k1ThetaDot = model.getThetaDotDot(theta, thetaDot, torqueSource.getTorque(theta, thetaDot));
+
+        double t = 0.0;
+        while (t < duration)
+        {
+            double h = Math.min(mStepSize, mMaxStepSize);
+            boolean lastStep = t + h >= duration;
+            if (lastStep)
+                h = duration - t;
+
+            double stageTheta = theta + h * (A21 * k1Theta);
+            double stageThetaDot = thetaDot + h * (A21 * k1ThetaDot);
+            double k2Theta = stageThetaDot;
+            double k2ThetaDot = getThetaDotDot(model, torqueSource, stageTheta, stageThetaDot);
+
+            stageTheta = theta + h * (A31 * k1Theta + A32 * k2Theta);
+            stageThetaDot = thetaDot + h * (A31 * k1ThetaDot + A32 * k2ThetaDot);
+            double k3Theta = stageThetaDot;
+            double k3ThetaDot = getThetaDotDot(model, torqueSource, stageTheta, stageThetaDot);
+
+            stageTheta = theta + h * (A41 * k1Theta + A42 * k2Theta + A43 * k3Theta);
+            stageThetaDot = thetaDot + h * (A41 * k1ThetaDot + A42 * k2ThetaDot + A43 * k3ThetaDot);
+            double k4Theta = stageThetaDot;
+            double k4ThetaDot = getThetaDotDot(model, torqueSource, stageTheta, stageThetaDot);
+
+            stageTheta = theta + h * (A51 * k1Theta + A52 * k2Theta + A53 * k3Theta + A54 * k4Theta);
+            stageThetaDot = thetaDot + h * (A51 * k1ThetaDot + A52 * k2ThetaDot + A53 * k3ThetaDot + A54 * k4ThetaDot);
+            double k5Theta = stageThetaDot;
+            double k5ThetaDot = getThetaDotDot(model, torqueSource, stageTheta, stageThetaDot);
+
+            stageTheta = theta + h * (A61 * k1Theta + A62 * k2Theta + A63 * k3Theta + A64 * k4Theta + A65 * k5Theta);
+            stageThetaDot = thetaDot + h * (A61 * k1ThetaDot + A62 * k2ThetaDot + A63 * k3ThetaDot + A64 * k4ThetaDot
+                    + A65 * k5ThetaDot);
+            double k6Theta = stageThetaDot;
+            double k6ThetaDot = getThetaDotDot(model, torqueSource, stageTheta, stageThetaDot);
+
+            double newTheta = theta + h * (B1 * k1Theta + B3 * k3Theta + B4 * k4Theta + B5 * k5Theta + B6 * k6Theta);
+            double newThetaDot = thetaDot + h * (B1 * k1ThetaDot + B3 * k3ThetaDot + B4 * k4ThetaDot + B5 * k5ThetaDot
+                    + B6 * k6ThetaDot);
+            double k7Theta = newThetaDot;
+            double k7ThetaDot = getThetaDotDot(model, torqueSource, newTheta, newThetaDot);
+            evaluations += 6;
+            Metrics.increment(Metrics.Counter.INTEGRATOR_STEPS);
+
+            double thetaError = h * (E1 * k1Theta + E3 * k3Theta + E4 * k4Theta + E5 * k5Theta + E6 * k6Theta
+                    + E7 * k7Theta);
+            double thetaDotError = h * (E1 * k1ThetaDot + E3 * k3ThetaDot + E4 * k4ThetaDot + E5 * k5ThetaDot
+                    + E6 * k6ThetaDot + E7 * k7ThetaDot);
+
+            double error = Math.max(
+                    Math.abs(thetaError) / (mAbsoluteTolerance + mRelativeTolerance * Math.max(Math.abs(theta), Math.abs(newTheta))),
+                    Math.abs(thetaDotError) / (mAbsoluteTolerance + mRelativeTolerance * Math.max(Math.abs(thetaDot), Math.abs(newThetaDot))));
+
+            double scale = error == 0.0 ? MAX_SCALE : SAFETY * Math.pow(error, -0.2);
+            scale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale));
+
+            if (error <= 1.0)
+            {
+                // Landing exactly on the end of the duration matters more than the rounding in t + h
+                t = lastStep ? duration : t + h;
+                theta = newTheta;
+                thetaDot = newThetaDot;
+
+                // The last stage was evaluated at the new state, so it's the first stage of the next step
+                k1Theta = k7Theta;
+                k1ThetaDot = k7ThetaDot;
+
+                // A shortened last step says nothing about how big the steps can be, so don't let it shrink them
+                if (!lastStep || h >= mStepSize)
+                    mStepSize = h * scale;
+            } else
+            {
+                mStepSize = h * Math.min(1.0, scale);
+                Metrics.increment(Metrics.Counter.REJECTED_STEPS);
+
+                if (mStepSize < MIN_STEP_SIZE)
+                    throw new IllegalStateException("Step size underflow at t = " + t + " s, the tolerances can't be met");
+            }
+        }
+
+        model.setState(theta, thetaDot);
+
+        Metrics.add(Metrics.Counter.DERIVATIVE_EVALUATIONS, evaluations);
+        return evaluations;
+    }
+
+    @Override
+    public double getNextStepSize()
+    {
+        return mStepSize;
+    }
+
+    @Override
+    public void setNextStepSize(double stepSize)
+    {
+        mStepSize = stepSize;
+    }
+
+    private static double getThetaDotDot(PendulumModel model, TorqueSource torqueSource, double theta, double thetaDot)
+    {
+        return model.getThetaDotDot(theta, thetaDot, torqueSource.getTorque(theta, thetaDot));
+    }
+}
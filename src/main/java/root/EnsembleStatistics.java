@@ -0,0 +1,183 @@
+package root;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * Statistics over many runs of the same length, updated as the samples arrive so none of the trajectories have to be
+ * kept. The mean and variance of theta and torque at every sample time use Welford's algorithm, and two sets of
+ * statistics can be merged with Chan's formula, so runs can be split across threads and combined at the end. Memory
+ * depends on the number of samples per run, not the number of runs.
+ */
+public class EnsembleStatistics implements SampleListener
+{
+    private static final int SKETCH_BINS = 1024;
+
+    private final long mSamplePeriodNs;
+
+    private final long[] mCounts;
+    private final double[] mThetaMeans;
+    private final double[] mThetaM2s;
+    private final double[] mTorqueMeans;
+    private final double[] mTorqueM2s;
+
+    private long mRuns = 0;
+    private long mFailures = 0;
+    private long mUnsettledRuns = 0;
+    private final QuantileSketch mMaxAbsTheta = new QuantileSketch(0.0, Math.PI, SKETCH_BINS);
+    private final QuantileSketch mSettlingTime;
+
+    public EnsembleStatistics(SimulationConfig config)
+    {
+        mSamplePeriodNs = config.saveStateEveryXNs;
+
+        int sampleCount = config.getSampleCount();
+        mCounts = new long[sampleCount];
+        mThetaMeans = new double[sampleCount];
+        mThetaM2s = new double[sampleCount];
+        mTorqueMeans = new double[sampleCount];
+        mTorqueM2s = new double[sampleCount];
+
+        mSettlingTime = new QuantileSketch(0.0, Constants.nanosecondsToSeconds(config.timespanNs), SKETCH_BINS);
+    }
+
+    @Override
+    public void onSample(int sample, double time, double theta, double thetaDot, double torque)
+    {
+        long count = ++mCounts[sample];
+
+        double thetaDelta = theta - mThetaMeans[sample];
+        mThetaMeans[sample] += thetaDelta / count;
+        mThetaM2s[sample] += thetaDelta * (theta - mThetaMeans[sample]);
+
+        double torqueDelta = torque - mTorqueMeans[sample];
+        mTorqueMeans[sample] += torqueDelta / count;
+        mTorqueM2s[sample] += torqueDelta * (torque - mTorqueMeans[sample]);
+    }
+
+    /**
+     * Called once a run's samples have all been added
+     */
+    public void addRun(RunSummary summary)
+    {
+        ++mRuns;
+
+        if (summary.fell())
+            ++mFailures;
+
+        mMaxAbsTheta.add(summary.getMaxAbsTheta());
+
+        if (Double.isNaN(summary.getSettlingTime()))
+            ++mUnsettledRuns;
+        else
+            mSettlingTime.add(summary.getSettlingTime());
+    }
+
+    public void add(EnsembleStatistics statistics)
+    {
+        if (statistics.mCounts.length != mCounts.length)
+            throw new IllegalArgumentException("Statistics are for runs with different numbers of samples");
+
+        for (int i = 0; i < mCounts.length; ++i)
+        {
+            long count = mCounts[i];
+            long otherCount = statistics.mCounts[i];
+            if (otherCount == 0)
+                continue;
+
+            long totalCount = count + otherCount;
+            double thetaDelta = statistics.mThetaMeans[i] - mThetaMeans[i];
+            double torqueDelta = statistics.mTorqueMeans[i] - mTorqueMeans[i];
+            double weight = (double) count * otherCount / totalCount;
+
+            mThetaMeans[i] += thetaDelta * otherCount / totalCount;
+            mThetaM2s[i] += statistics.mThetaM2s[i] + thetaDelta * thetaDelta * weight;
+            mTorqueMeans[i] += torqueDelta * otherCount / totalCount;
+            mTorqueM2s[i] += statistics.mTorqueM2s[i] + torqueDelta * torqueDelta * weight;
+            mCounts[i] = totalCount;
+        }
+
+        mRuns += statistics.mRuns;
+        mFailures += statistics.mFailures;
+        mUnsettledRuns += statistics.mUnsettledRuns;
+        mMaxAbsTheta.add(statistics.mMaxAbsTheta);
+        mSettlingTime.add(statistics.mSettlingTime);
+    }
+
+    public int getSampleCount()
+    {
+        return mCounts.length;
+    }
+
+    public long getRuns()
+    {
+        return mRuns;
+    }
+
+    /**
+     * The fraction of runs where the pendulum fell past {@link Constants#FALLEN_THETA}
+     */
+    public double getFailureProbability()
+    {
+        return mRuns == 0 ? 0.0 : (double) mFailures / mRuns;
+    }
+
+    /**
+     * The fraction of runs that weren't within the settled tolerance at the end
+     */
+    public double getUnsettledFraction()
+    {
+        return mRuns == 0 ? 0.0 : (double) mUnsettledRuns / mRuns;
+    }
+
+    public double getThetaMean(int sample)
+    {
+        return mThetaMeans[sample];
+    }
+
+    public double getThetaVariance(int sample)
+    {
+        return mCounts[sample] < 2 ? 0.0 : mThetaM2s[sample] / (mCounts[sample] - 1);
+    }
+
+    public double getTorqueMean(int sample)
+    {
+        return mTorqueMeans[sample];
+    }
+
+    public double getTorqueVariance(int sample)
+    {
+        return mCounts[sample] < 2 ? 0.0 : mTorqueM2s[sample] / (mCounts[sample] - 1);
+    }
+
+    public QuantileSketch getMaxAbsTheta()
+    {
+        return mMaxAbsTheta;
+    }
+
+    /**
+     * Settling times of the runs that settled
+     */
+    public QuantileSketch getSettlingTime()
+    {
+        return mSettlingTime;
+    }
+
+    public void saveToCsv(String fileName) throws IOException
+    {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName)))
+        {
+            writer.append("time,thetaMean,thetaStdDev,torqueMean,torqueStdDev\n");
+
+            for (int i = 0; i < mCounts.length; ++i)
+            {
+                writer.append(String.valueOf(Constants.nanosecondsToSeconds(i * mSamplePeriodNs))).append(',')
+                        .append(String.valueOf(getThetaMean(i))).append(',')
+                        .append(String.valueOf(Math.sqrt(getThetaVariance(i)))).append(',')
+                        .append(String.valueOf(getTorqueMean(i))).append(',')
+                        .append(String.valueOf(Math.sqrt(getTorqueVariance(i)))).append('\n');
+            }
+        }
+    }
+}
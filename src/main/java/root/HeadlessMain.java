@@ -0,0 +1,257 @@
+package root;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Command line entry point that runs the simulation without starting the JavaFX toolkit, for machines with no display.
+ * <p>
+ * With no arguments the scenario in {@link Constants} is run. "sweep" followed by parameter=start:end:count arguments
+ * runs a parameter sweep and saves a summary of every run to sweep.csv, for example
+ * "sweep eigenvalue_1=-10:-1:10 kd=2:8:4". "integrators" runs the scenario with every integrator and compares how much
+ * work each one did. "realtime" runs the controller as a real time loop against the plant, at 1 kHz or at the rate in
+ * Hz given after it, and reports timing jitter, latency and deadline misses. "montecarlo" followed by an optional run
+ * count and seed runs the scenario with randomly perturbed plants and saves the mean and standard deviation of the
+ * trajectories to montecarlo.csv. "plot" runs the scenario and saves plots of theta and torque to theta.png and
+ * torque.png, or to .svg files with "plot svg", and "plot png trajectory.bin" plots a file saved by
+ * {@link BinaryTrajectoryWriter} instead of running anything.
+ * <p>
+ * "--scenario file" runs every scenario in a scenario file, see {@link ScenarioParser}, and saves a summary of each one
+ * to scenarios.csv. "--scenario file name" runs that one scenario instead of the one in {@link Constants}, followed by
+ * any of the other modes, for example "--scenario scenarios.ini heavy montecarlo 500".
+ * <p>
+ * Every mode reports the {@link Metrics} when it finishes if they're turned on.
+ */
+public class HeadlessMain
+{
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        Metrics.startReporting();
+
+        SimulationConfig config = new SimulationConfig.Builder().build();
+
+        if (args.length > 1 && args[0].equals("--scenario"))
+        {
+            List<Scenario> scenarios = ScenarioParser.load(args[1]);
+
+            if (args.length == 2)
+            {
+                runScenarios(scenarios);
+                return;
+            }
+
+            config = ScenarioParser.find(scenarios, args[2]).config;
+            args = Arrays.copyOfRange(args, 3, args.length);
+        }
+
+        if (args.length > 0 && args[0].equals("sweep"))
+        {
+            runSweep(config, args);
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("integrators"))
+        {
+            compareIntegrators(config);
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("montecarlo"))
+        {
+            int runs = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+            long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+            runMonteCarlo(config, runs, seed);
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("plot"))
+        {
+            String extension = args.length > 1 ? args[1] : "png";
+            if (args.length > 2)
+                plotFile(args[2], extension);
+            else
+                plot(config, extension);
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("realtime"))
+        {
+            long controlPeriodNs = args.length > 1
+                    ? Math.round(1_000_000_000.0 / Double.parseDouble(args[1]))
+                    : RealTimeLoop.DEFAULT_CONTROL_PERIOD_NS;
+            runRealTime(config, controlPeriodNs);
+            return;
+        }
+
+        // The files are written while the simulation runs rather than from the trajectory afterwards
+        CsvExporter thetaExporter = Constants.SAVE_TO_CSV && Constants.SAVE_THETA
+                ? CsvExporter.theta("theta.csv", config) : null;
+        CsvExporter torqueExporter = Constants.SAVE_TO_CSV && Constants.SAVE_TORQUE
+                ? CsvExporter.torque("torque.csv", config) : null;
+        BinaryTrajectoryWriter binaryWriter = Constants.SAVE_TO_BINARY
+                ? new BinaryTrajectoryWriter("trajectory.bin", config.saveStateEveryXNs) : null;
+
+        try (thetaExporter; torqueExporter; binaryWriter)
+        {
+            // Nothing keeps the samples, they're only counted on their way to the files
+            int[] savedSamples = {0};
+            SampleListener counter = (sample, time, theta, thetaDot, torque) -> ++savedSamples[0];
+
+            long startTime = System.nanoTime();
+            RunSummary summary = new Simulator(ResultCache.getShared()).stream(config,
+                    SampleListener.of(thetaExporter, torqueExporter, binaryWriter, counter));
+            long elapsedTime = System.nanoTime() - startTime;
+
+            System.out.println("Simulated " + Constants.nanosecondsToSeconds(config.timespanNs) + " s in "
+                    + elapsedTime / 1_000_000.0 + " ms, saved " + savedSamples[0] + " samples, "
+                    + getEvaluationsPerSecond(config, summary) + " derivative evaluations per simulated second");
+        }
+    }
+
+    private static void runScenarios(List<Scenario> scenarios) throws IOException
+    {
+        Simulator simulator = new Simulator(ResultCache.getShared());
+        RunSummary[] summaries = new RunSummary[scenarios.size()];
+
+        long startTime = System.nanoTime();
+        Arrays.parallelSetAll(summaries, i -> simulator.summarize(scenarios.get(i).config));
+        long elapsedTime = System.nanoTime() - startTime;
+
+        System.out.println("Ran " + summaries.length + " scenarios in " + elapsedTime / 1_000_000.0 + " ms");
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter("scenarios.csv")))
+        {
+            writer.append("scenario,settlingTime,maxAbsTheta,saturationFraction,fell\n");
+
+            for (int i = 0; i < summaries.length; ++i)
+            {
+                RunSummary summary = summaries[i];
+                writer.append(scenarios.get(i).name).append(',')
+                        .append(String.valueOf(summary.getSettlingTime())).append(',')
+                        .append(String.valueOf(summary.getMaxAbsTheta())).append(',')
+                        .append(String.valueOf(summary.getSaturationFraction())).append(',')
+                        .append(String.valueOf(summary.fell())).append('\n');
+            }
+        }
+    }
+
+    private static void runMonteCarlo(SimulationConfig config, int runs, long seed) throws IOException
+    {
+        long startTime = System.nanoTime();
+        EnsembleStatistics statistics = new MonteCarlo(config, seed).run(runs);
+        long elapsedTime = System.nanoTime() - startTime;
+
+        QuantileSketch maxAbsTheta = statistics.getMaxAbsTheta();
+        QuantileSketch settlingTime = statistics.getSettlingTime();
+        System.out.println("Ran " + statistics.getRuns() + " runs in " + elapsedTime / 1_000_000.0 + " ms");
+        System.out.println("Failure probability " + statistics.getFailureProbability() + ", not settled at the end "
+                + statistics.getUnsettledFraction());
+        System.out.println("Max |theta| p50 " + maxAbsTheta.getQuantile(0.5) + " rad, p95 " + maxAbsTheta.getQuantile(0.95)
+                + " rad, p99 " + maxAbsTheta.getQuantile(0.99) + " rad");
+        System.out.println("Settling time p50 " + settlingTime.getQuantile(0.5) + " s, p95 "
+                + settlingTime.getQuantile(0.95) + " s, p99 " + settlingTime.getQuantile(0.99) + " s");
+
+        statistics.saveToCsv("montecarlo.csv");
+    }
+
+    private static void plot(SimulationConfig config, String extension) throws IOException
+    {
+        TrajectoryPlots plots = TrajectoryPlots.forConfig(config);
+        new Simulator(ResultCache.getShared()).stream(config, plots);
+
+        long startTime = System.nanoTime();
+        plots.write(extension);
+        System.out.println("Plotted " + plots.getThetaPlot().getSeries().size() + " samples in "
+                + (System.nanoTime() - startTime) / 1_000_000.0 + " ms");
+    }
+
+    private static void plotFile(String fileName, String extension) throws IOException
+    {
+        long startTime = System.nanoTime();
+        MappedTrajectory trajectory = MappedTrajectory.open(fileName);
+        TrajectoryPlots plots = new TrajectoryPlots(trajectory.size(), trajectory.getSamplePeriodS(),
+                Constants.PLOT_WIDTH, Constants.PLOT_HEIGHT);
+
+        for (int i = 0; i < trajectory.size(); ++i)
+        {
+            plots.onSample(i, trajectory.getTime(i), trajectory.getTheta(i), trajectory.getThetaDot(i),
+                    trajectory.getTorque(i));
+        }
+        plots.write(extension);
+
+        System.out.println("Plotted " + trajectory.size() + " samples from " + fileName + " in "
+                + (System.nanoTime() - startTime) / 1_000_000.0 + " ms");
+    }
+
+    private static void runRealTime(SimulationConfig config, long controlPeriodNs) throws InterruptedException
+    {
+        RealTimeResult result = new RealTimeLoop(config, controlPeriodNs).run();
+
+        Trajectory trajectory = result.getTrajectory();
+        System.out.println("Ran " + result.getTicks() + " controller ticks at " + 1_000_000_000.0 / controlPeriodNs
+                + " Hz, missed " + result.getMissedDeadlines() + " deadlines, final theta "
+                + trajectory.getTheta(trajectory.getEndSample() - 1) + " rad");
+        System.out.println("Jitter:  " + result.getJitter());
+        System.out.println("Latency: " + result.getLatency());
+    }
+
+    private static void compareIntegrators(SimulationConfig config)
+    {
+        Simulator simulator = new Simulator();
+        Trajectory reference = null;
+
+        for (Integrator.Type integrator : Integrator.Type.values())
+        {
+            if (integrator == Integrator.Type.ZERO_ORDER_HOLD && !config.linearized)
+                continue;
+
+            SimulationConfig integratorConfig = config.toBuilder().setIntegrator(integrator).build();
+
+            // Warm up so the timing is of compiled code
+            for (int i = 0; i < 5; ++i)
+                simulator.summarize(integratorConfig);
+
+            long startTime = System.nanoTime();
+            SimulationResult result = simulator.run(integratorConfig);
+            long elapsedTime = System.nanoTime() - startTime;
+
+            Trajectory trajectory = result.getTrajectory();
+            if (reference == null)
+                reference = trajectory;
+
+            double maxDifference = 0.0;
+            for (int i = 0; i < Math.min(reference.size(), trajectory.size()); ++i)
+                maxDifference = Math.max(maxDifference, Math.abs(reference.getTheta(i) - trajectory.getTheta(i)));
+
+            System.out.println(integrator + ": " + result.getSummary().getDerivativeEvaluations() + " derivative evaluations, "
+                    + getEvaluationsPerSecond(integratorConfig, result.getSummary()) + " per simulated second, "
+                    + elapsedTime / 1_000_000.0 + " ms, max theta difference from " + Integrator.Type.values()[0] + " "
+                    + maxDifference + " rad");
+        }
+    }
+
+    private static double getEvaluationsPerSecond(SimulationConfig config, RunSummary summary)
+    {
+        return summary.getDerivativeEvaluations() / Constants.nanosecondsToSeconds(config.timespanNs);
+    }
+
+    private static void runSweep(SimulationConfig config, String[] args) throws IOException
+    {
+        ParameterSweep sweep = new ParameterSweep(config);
+
+        for (int i = 1; i < args.length; ++i)
+            sweep.setRange(args[i]);
+
+        long startTime = System.nanoTime();
+        RunSummary[] summaries = sweep.run();
+        long elapsedTime = System.nanoTime() - startTime;
+
+        System.out.println("Ran " + summaries.length + " simulations on " + Runtime.getRuntime().availableProcessors()
+                + " cores in " + elapsedTime / 1_000_000.0 + " ms");
+
+        sweep.saveToCsv("sweep.csv", summaries);
+    }
+}
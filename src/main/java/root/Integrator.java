@@ -0,0 +1,41 @@
+package root;
+
+/**
+ * Advances a {@link PendulumModel} through time
+ */
+public interface Integrator
+{
+    enum Type
+    {
+        RK4,
+        DORMAND_PRINCE,
+        // Exact steps of the linearized model only
+        ZERO_ORDER_HOLD;
+
+        /**
+         * Whether it picks its own steps and lets the controller act continuously rather than once every dt
+         */
+        public boolean isAdaptive()
+        {
+            return this == DORMAND_PRINCE;
+        }
+    }
+
+    /**
+     * Advances the model's state by exactly duration seconds and returns how many times the derivative was evaluated
+     */
+    int advance(PendulumModel model, TorqueSource torqueSource, double duration);
+
+    /**
+     * The step size carried over to the next call, for integrators that pick their own, so a run can be resumed
+     * exactly where it left off
+     */
+    default double getNextStepSize()
+    {
+        return 0.0;
+    }
+
+    default void setNextStepSize(double stepSize)
+    {
+    }
+}
@@ -0,0 +1,126 @@
+package root;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Counts nanosecond durations in log-linear buckets like HdrHistogram: exact below 64 ns, then 64 buckets per power of
+ * two, so any recorded value is off by less than 1/64 of itself. The buckets are allocated up front and recording only
+ * increments a counter, so it can be used from a loop that mustn't allocate. Not thread safe.
+ */
+public class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final long[] mCounts = new long[BUCKET_COUNT];
+    private long mTotalCount = 0;
+    private long mMin = Long.MAX_VALUE;
+    private long mMax = 0;
+    private double mSum = 0.0;
+
+    /**
+     * Negative values are counted as 0
+     */
+    public void record(long valueNs)
+    {
+        long value = Math.max(0, valueNs);
+
+        ++mCounts[getIndex(value)];
+        ++mTotalCount;
+        mMin = Math.min(mMin, value);
+        mMax = Math.max(mMax, value);
+        mSum += value;
+    }
+
+    public void add(LatencyHistogram histogram)
+    {
+        for (int i = 0; i < BUCKET_COUNT; ++i)
+            mCounts[i] += histogram.mCounts[i];
+
+        mTotalCount += histogram.mTotalCount;
+        mMin = Math.min(mMin, histogram.mMin);
+        mMax = Math.max(mMax, histogram.mMax);
+        mSum += histogram.mSum;
+    }
+
+    public void clear()
+    {
+        Arrays.fill(mCounts, 0);
+        mTotalCount = 0;
+        mMin = Long.MAX_VALUE;
+        mMax = 0;
+        mSum = 0.0;
+    }
+
+    public long getCount()
+    {
+        return mTotalCount;
+    }
+
+    public long getMin()
+    {
+        return mTotalCount == 0 ? 0 : mMin;
+    }
+
+    public long getMax()
+    {
+        return mMax;
+    }
+
+    public double getMean()
+    {
+        return mTotalCount == 0 ? 0.0 : mSum / mTotalCount;
+    }
+
+    /**
+     * The value that percentile percent of the recorded values are at or below, rounded up to the top of its bucket
+     */
+    public long getValueAtPercentile(double percentile)
+    {
+        if (mTotalCount == 0)
+            return 0;
+
+        long countAtPercentile = Math.max(1, (long) Math.ceil(percentile / 100.0 * mTotalCount));
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i)
+        {
+            count += mCounts[i];
+            if (count >= countAtPercentile)
+                return Math.min(getHighestValue(i), mMax);
+        }
+
+        return mMax;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format(Locale.ROOT, "p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us, mean %.1f us",
+                getValueAtPercentile(50.0) / 1000.0, getValueAtPercentile(99.0) / 1000.0,
+                getValueAtPercentile(99.9) / 1000.0, getMax() / 1000.0, getMean() / 1000.0);
+    }
+
+    private static int getIndex(long value)
+    {
+        if (value < SUB_BUCKET_COUNT)
+            return (int) value;
+
+        // The top SUB_BUCKET_BITS + 1 bits of the value pick the bucket
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    private static long getHighestValue(int index)
+    {
+        if (index < SUB_BUCKET_COUNT)
+            return index;
+
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
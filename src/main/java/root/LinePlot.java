@@ -0,0 +1,391 @@
+package root;
+
+import javax.imageio.ImageIO;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Line2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * A line plot of one series against time, rendered in the JVM to a PNG or an SVG. The series is decimated to one
+ * bucket per pixel column of the plot area as it's added, see {@link DecimatedSeries}, so rendering costs the same
+ * however many samples there are. Only java.awt images are used, which work with no display.
+ */
+public class LinePlot
+{
+    private static final int MARGIN_LEFT = 70;
+    private static final int MARGIN_RIGHT = 20;
+    private static final int MARGIN_TOP = 30;
+    private static final int MARGIN_BOTTOM = 45;
+    private static final int MAX_TICKS = 8;
+    private static final int FONT_SIZE = 12;
+    private static final float LINE_WIDTH = 1.5f;
+
+    private static final Color LINE_COLOR = new Color(0x1F77B4);
+    private static final Color GRID_COLOR = new Color(0xDDDDDD);
+
+    private final String mTitle;
+    private final double mStartTime;
+    private final double mEndTime;
+    private final int mWidth;
+    private final int mHeight;
+    private final DecimatedSeries mSeries;
+
+    /**
+     * A plot of sampleCount samples evenly spread from startTime to endTime, which are added to {@link #getSeries()}
+     */
+    public LinePlot(String title, double startTime, double endTime, int sampleCount, int width, int height)
+    {
+        if (width <= MARGIN_LEFT + MARGIN_RIGHT || height <= MARGIN_TOP + MARGIN_BOTTOM)
+            throw new IllegalArgumentException("Plot is too small, got " + width + "x" + height);
+
+        mTitle = title;
+        mStartTime = startTime;
+        mEndTime = endTime;
+        mWidth = width;
+        mHeight = height;
+        mSeries = new DecimatedSeries(width - MARGIN_LEFT - MARGIN_RIGHT, sampleCount);
+    }
+
+    /**
+     * A plot of values[from] to values[to - 1], taken samplePeriod apart starting at startTime
+     */
+    public static LinePlot of(String title, double[] values, int from, int to, double startTime, double samplePeriod,
+            int width, int height)
+    {
+        int sampleCount = to - from;
+        LinePlot plot = new LinePlot(title, startTime, startTime + Math.max(0, sampleCount - 1) * samplePeriod,
+                sampleCount, width, height);
+        plot.mSeries.addAll(values, from, to);
+        return plot;
+    }
+
+    public DecimatedSeries getSeries()
+    {
+        return mSeries;
+    }
+
+    /**
+     * Writes a PNG or an SVG depending on the file name's extension
+     */
+    public void write(String fileName) throws IOException
+    {
+        String lowerCaseName = fileName.toLowerCase(Locale.ROOT);
+        if (lowerCaseName.endsWith(".png"))
+        {
+            ImageIO.write(render(), "png", new File(fileName));
+        } else if (lowerCaseName.endsWith(".svg"))
+        {
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName)))
+            {
+                writer.write(toSvg());
+            }
+        } else
+        {
+            throw new IllegalArgumentException("Plots can only be written as .png or .svg, got " + fileName);
+        }
+    }
+
+    public BufferedImage render()
+    {
+        Axes axes = new Axes();
+
+        BufferedImage image = new BufferedImage(mWidth, mHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        try
+        {
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, mWidth, mHeight);
+            graphics.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, FONT_SIZE));
+            FontMetrics metrics = graphics.getFontMetrics();
+
+            for (int i = 0; i < axes.timeTicks; ++i)
+            {
+                double tick = axes.getTimeTick(i);
+                int x = (int) Math.round(axes.getX(tick));
+                graphics.setColor(GRID_COLOR);
+                graphics.drawLine(x, MARGIN_TOP, x, axes.bottom);
+                graphics.setColor(Color.BLACK);
+                String label = formatTick(tick, axes.timeStep);
+                graphics.drawString(label, x - metrics.stringWidth(label) / 2, axes.bottom + 5 + metrics.getAscent());
+            }
+
+            for (int i = 0; i < axes.valueTicks; ++i)
+            {
+                double tick = axes.getValueTick(i);
+                int y = (int) Math.round(axes.getY(tick));
+                graphics.setColor(GRID_COLOR);
+                graphics.drawLine(MARGIN_LEFT, y, axes.right, y);
+                graphics.setColor(Color.BLACK);
+                String label = formatTick(tick, axes.valueStep);
+                graphics.drawString(label, MARGIN_LEFT - 5 - metrics.stringWidth(label),
+                        y + metrics.getAscent() / 2 - 1);
+            }
+
+            graphics.setColor(Color.BLACK);
+            graphics.drawRect(MARGIN_LEFT, MARGIN_TOP, axes.right - MARGIN_LEFT, axes.bottom - MARGIN_TOP);
+            graphics.drawString(mTitle, (mWidth - metrics.stringWidth(mTitle)) / 2, MARGIN_TOP - 10);
+            graphics.drawString("Time (s)", (MARGIN_LEFT + axes.right - metrics.stringWidth("Time (s)")) / 2,
+                    mHeight - 8);
+
+            // Each column is filled over its bucket's range, stretched to the last value of the column before so they
+            // join up. That's what stroking the path would draw, but stroking a path that doubles back on itself in
+            // every column takes Java2D a hundred times longer.
+            graphics.setClip(MARGIN_LEFT, MARGIN_TOP, axes.right - MARGIN_LEFT, axes.bottom - MARGIN_TOP);
+            graphics.setColor(LINE_COLOR);
+            graphics.setStroke(new BasicStroke(LINE_WIDTH, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+
+            int previousBucket = -1;
+            double previousLast = 0.0;
+            for (int bucket = 0; bucket < mSeries.getBucketCount(); ++bucket)
+            {
+                if (!mSeries.isFilled(bucket))
+                    continue;
+
+                int x = MARGIN_LEFT + bucket;
+                double top = axes.getY(mSeries.getMax(bucket));
+                double bottom = axes.getY(mSeries.getMin(bucket));
+
+                boolean joined = previousBucket >= 0 && previousBucket == bucket - 1;
+                if (joined)
+                {
+                    top = Math.min(top, previousLast);
+                    bottom = Math.max(bottom, previousLast);
+                } else if (previousBucket >= 0)
+                {
+                    // Columns are only skipped when there are fewer samples than columns, so there aren't many of these
+                    graphics.draw(new Line2D.Double(MARGIN_LEFT + previousBucket + 0.5, previousLast, x + 0.5,
+                            axes.getY(mSeries.getFirst(bucket))));
+                }
+
+                // A single value reached by a line is already drawn
+                if (joined || top != bottom || previousBucket < 0)
+                {
+                    int spanTop = (int) Math.floor(top - LINE_WIDTH / 2);
+                    int spanBottom = (int) Math.ceil(bottom + LINE_WIDTH / 2);
+                    graphics.fillRect(x, spanTop, (int) Math.ceil(LINE_WIDTH), spanBottom - spanTop);
+                }
+
+                previousBucket = bucket;
+                previousLast = axes.getY(mSeries.getLast(bucket));
+            }
+        } finally
+        {
+            graphics.dispose();
+        }
+
+        return image;
+    }
+
+    public String toSvg()
+    {
+        Axes axes = new Axes();
+        StringBuilder svg = new StringBuilder();
+
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(mWidth).append("\" height=\"")
+                .append(mHeight).append("\" font-family=\"sans-serif\" font-size=\"").append(FONT_SIZE).append("\">\n");
+        svg.append("<rect width=\"100%\" height=\"100%\" fill=\"white\"/>\n");
+
+        StringBuilder grid = new StringBuilder();
+        for (int i = 0; i < axes.timeTicks; ++i)
+        {
+            double tick = axes.getTimeTick(i);
+            double x = round(axes.getX(tick));
+            grid.append('M').append(x).append(' ').append(MARGIN_TOP).append('V').append(axes.bottom);
+            appendText(svg, formatTick(tick, axes.timeStep), x, axes.bottom + 5 + FONT_SIZE, "middle");
+        }
+        for (int i = 0; i < axes.valueTicks; ++i)
+        {
+            double tick = axes.getValueTick(i);
+            double y = round(axes.getY(tick));
+            grid.append('M').append(MARGIN_LEFT).append(' ').append(y).append('H').append(axes.right);
+            appendText(svg, formatTick(tick, axes.valueStep), MARGIN_LEFT - 5, y + FONT_SIZE / 2 - 1, "end");
+        }
+        svg.append("<path d=\"").append(grid).append("\" stroke=\"#DDDDDD\" fill=\"none\"/>\n");
+
+        svg.append("<rect x=\"").append(MARGIN_LEFT).append("\" y=\"").append(MARGIN_TOP).append("\" width=\"")
+                .append(axes.right - MARGIN_LEFT).append("\" height=\"").append(axes.bottom - MARGIN_TOP)
+                .append("\" stroke=\"black\" fill=\"none\"/>\n");
+        appendText(svg, mTitle, mWidth / 2.0, MARGIN_TOP - 10, "middle");
+        appendText(svg, "Time (s)", (MARGIN_LEFT + axes.right) / 2.0, mHeight - 8, "middle");
+
+        svg.append("<clipPath id=\"plot-area\"><rect x=\"").append(MARGIN_LEFT).append("\" y=\"").append(MARGIN_TOP)
+                .append("\" width=\"").append(axes.right - MARGIN_LEFT).append("\" height=\"")
+                .append(axes.bottom - MARGIN_TOP).append("\"/></clipPath>\n");
+        svg.append("<path clip-path=\"url(#plot-area)\" stroke=\"#1F77B4\" stroke-width=\"").append(LINE_WIDTH)
+                .append("\" stroke-linejoin=\"round\" fill=\"none\" d=\"");
+        char command = 'M';
+        for (int bucket = 0; bucket < mSeries.getBucketCount(); ++bucket)
+        {
+            if (!mSeries.isFilled(bucket))
+                continue;
+
+            double x = MARGIN_LEFT + bucket + 0.5;
+            svg.append(command).append(x).append(' ').append(round(axes.getY(mSeries.getFirst(bucket))));
+            command = 'L';
+
+            double min = mSeries.getMin(bucket);
+            double max = mSeries.getMax(bucket);
+            // A bucket with a single value in it is just the one point
+            if (min != max)
+            {
+                svg.append('V').append(round(axes.getY(min)));
+                svg.append('V').append(round(axes.getY(max)));
+                svg.append('V').append(round(axes.getY(mSeries.getLast(bucket))));
+            }
+        }
+        svg.append("\"/>\n</svg>\n");
+
+        return svg.toString();
+    }
+
+    /**
+     * The ranges and tick spacing of both axes, from the values added so far
+     */
+    private class Axes
+    {
+        final int right = mWidth - MARGIN_RIGHT;
+        final int bottom = mHeight - MARGIN_BOTTOM;
+
+        final double minValue;
+        final double maxValue;
+        final double timeStep;
+        final double firstTimeTick;
+        final int timeTicks;
+        final double valueStep;
+        final double firstValueTick;
+        final int valueTicks;
+
+        Axes()
+        {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int bucket = 0; bucket < mSeries.getBucketCount(); ++bucket)
+            {
+                if (mSeries.isFilled(bucket))
+                {
+                    min = Math.min(min, mSeries.getMin(bucket));
+                    max = Math.max(max, mSeries.getMax(bucket));
+                }
+            }
+
+            if (!(min <= max))
+            {
+                min = 0.0;
+                max = 1.0;
+            } else if (min == max)
+            {
+                double padding = Math.max(1.0, Math.abs(min) * 0.1);
+                min -= padding;
+                max += padding;
+            } else
+            {
+                // A little room so the line isn't drawn on top of the border
+                double padding = (max - min) * 0.05;
+                min -= padding;
+                max += padding;
+            }
+            minValue = min;
+            maxValue = max;
+
+            timeStep = getTickStep(mEndTime > mStartTime ? mEndTime - mStartTime : 1.0);
+            firstTimeTick = Math.ceil(mStartTime / timeStep) * timeStep;
+            timeTicks = getTickCount(firstTimeTick, Math.max(mStartTime, mEndTime), timeStep);
+            valueStep = getTickStep(maxValue - minValue);
+            firstValueTick = Math.ceil(minValue / valueStep) * valueStep;
+            valueTicks = getTickCount(firstValueTick, maxValue, valueStep);
+        }
+
+        double getTimeTick(int tick)
+        {
+            return firstTimeTick + tick * timeStep;
+        }
+
+        double getValueTick(int tick)
+        {
+            return firstValueTick + tick * valueStep;
+        }
+
+        double getX(double time)
+        {
+            if (mEndTime <= mStartTime)
+                return MARGIN_LEFT;
+
+            return MARGIN_LEFT + (time - mStartTime) / (mEndTime - mStartTime) * mSeries.getBucketCount();
+        }
+
+        double getY(double value)
+        {
+            return MARGIN_TOP + (maxValue - value) / (maxValue - minValue) * (bottom - MARGIN_TOP);
+        }
+    }
+
+    /**
+     * 1, 2 or 5 times a power of ten, whichever gives closest to {@link #MAX_TICKS} ticks without going over
+     */
+    private static double getTickStep(double range)
+    {
+        double rawStep = range / MAX_TICKS;
+        double magnitude = Math.pow(10, Math.floor(Math.log10(rawStep)));
+        double normalized = rawStep / magnitude;
+
+        if (normalized <= 1)
+            return magnitude;
+        if (normalized <= 2)
+            return 2 * magnitude;
+        if (normalized <= 5)
+            return 5 * magnitude;
+        return 10 * magnitude;
+    }
+
+    /**
+     * How many ticks fit from first to end, 0 if the range isn't finite
+     */
+    private static int getTickCount(double first, double end, double step)
+    {
+        double count = Math.floor((end - first) / step + 1e-9) + 1;
+        return count >= 0 && count <= 10 * MAX_TICKS ? (int) count : 0;
+    }
+
+    private static String formatTick(double tick, double step)
+    {
+        int decimals = Math.max(0, (int) -Math.floor(Math.log10(step)));
+        // Adding 0.0 turns -0.0 into 0.0 so there's no "-0" label
+        return String.format(Locale.ROOT, "%." + decimals + "f", tick + 0.0);
+    }
+
+    private static double round(double coordinate)
+    {
+        return Math.round(coordinate * 10) / 10.0;
+    }
+
+    private static void appendText(StringBuilder svg, String text, double x, double y, String anchor)
+    {
+        svg.append("<text x=\"").append(round(x)).append("\" y=\"").append(round(y)).append("\" text-anchor=\"")
+                .append(anchor).append("\">");
+        for (int i = 0; i < text.length(); ++i)
+        {
+            char c = text.charAt(i);
+            if (c == '<')
+                svg.append("&lt;");
+            else if (c == '>')
+                svg.append("&gt;");
+            else if (c == '&')
+                svg.append("&amp;");
+            else
+                svg.append(c);
+        }
+        svg.append("</text>\n");
+    }
+}
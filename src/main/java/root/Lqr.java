@@ -0,0 +1,196 @@
+package root;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Linear quadratic regulator gains for x' = Ax + Bu, the K in u = -Kx that minimizes the integral of x'Qx + u'Ru. K is
+ * R^-1 B' P where P solves the continuous algebraic Riccati equation A'P + PA - PBR^-1B'P + Q = 0.
+ * <p>
+ * P comes from the matrix sign function of the Hamiltonian H = [A -BR^-1B'; -Q -A'], found by the scaled Newton
+ * iteration Z = (cZ + (cZ)^-1) / 2. Each iteration is one LU decomposition, it converges quadratically once it gets
+ * close and needs no eigenvectors, so it works the same for any number of states.
+ * <p>
+ * {@link #getKMatrix} keeps the gains for the most recently used (A, B, Q, R), so sweeps and gain schedules that keep
+ * coming back to the same weights and plants only solve each one once. It can be called from any thread.
+ */
+public class Lqr
+{
+    private static final int MAX_ITERATIONS = 100;
+    private static final double TOLERANCE = 1e-12;
+    private static final int MAX_CACHED_GAINS = 4096;
+
+    private static final Map<Key, Matrix> GAINS = new LinkedHashMap<Key, Matrix>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Matrix> eldest)
+        {
+            return size() > MAX_CACHED_GAINS;
+        }
+    };
+
+    private Lqr()
+    {
+    }
+
+    /**
+     * The gains for (A, B, Q, R), from the cache if they've been asked for recently
+     */
+    public static Matrix getKMatrix(Matrix aMatrix, Matrix bMatrix, Matrix qMatrix, Matrix rMatrix)
+    {
+        Key key = new Key(aMatrix, bMatrix, qMatrix, rMatrix);
+
+        Matrix kMatrix;
+        synchronized (GAINS)
+        {
+            kMatrix = GAINS.get(key);
+        }
+
+        if (kMatrix == null)
+        {
+            // Solved outside the lock so threads designing different controllers don't wait on each other
+            kMatrix = computeKMatrix(aMatrix, bMatrix, qMatrix, rMatrix);
+            synchronized (GAINS)
+            {
+                GAINS.put(key, kMatrix);
+            }
+        }
+
+        // The cached matrix is never handed out, so nothing can change it
+        return kMatrix.clone();
+    }
+
+    public static Matrix computeKMatrix(Matrix aMatrix, Matrix bMatrix, Matrix qMatrix, Matrix rMatrix)
+    {
+        Matrix pMatrix = solveRiccati(aMatrix, bMatrix, qMatrix, rMatrix);
+        return rMatrix.solve(bMatrix.transpose().multiply(pMatrix));
+    }
+
+    /**
+     * The stabilizing solution P of the continuous algebraic Riccati equation. Throws IllegalArgumentException when
+     * there isn't one, which happens when (A, B) isn't stabilizable or (A, Q) isn't detectable.
+     */
+    public static Matrix solveRiccati(Matrix aMatrix, Matrix bMatrix, Matrix qMatrix, Matrix rMatrix)
+    {
+        int states = aMatrix.getRows();
+        int inputs = bMatrix.getColumns();
+
+        if (aMatrix.getColumns() != states || bMatrix.getRows() != states
+                || qMatrix.getColumns() != states || qMatrix.getRows() != states
+                || rMatrix.getColumns() != inputs || rMatrix.getRows() != inputs)
+        {
+            throw new IllegalArgumentException("Mismatched dimensions, A must be nxn, B nxm, Q nxn and R mxm");
+        }
+
+        Matrix gMatrix = bMatrix.multiply(rMatrix.solve(bMatrix.transpose()));
+
+        Matrix hamiltonian = new Matrix(2 * states, 2 * states);
+        hamiltonian.setBlock(0, 0, aMatrix);
+        hamiltonian.setBlock(states, 0, gMatrix.multiply(-1));
+        hamiltonian.setBlock(0, states, qMatrix.multiply(-1));
+        hamiltonian.setBlock(states, states, aMatrix.transpose().multiply(-1));
+
+        Matrix sign = getSign(hamiltonian);
+
+        // The stable invariant subspace of H is spanned by [I; P], which gives [W12; W22 + I] P = -[W11 + I; W21]
+        Matrix identity = Matrix.identity(states);
+        Matrix left = new Matrix(states, 2 * states);
+        left.setBlock(0, 0, sign.getBlock(states, 0, states, states));
+        left.setBlock(0, states, sign.getBlock(states, states, states, states).addInPlace(identity));
+
+        Matrix right = new Matrix(states, 2 * states);
+        right.setBlock(0, 0, sign.getBlock(0, 0, states, states).addInPlace(identity));
+        right.setBlock(0, states, sign.getBlock(0, states, states, states));
+
+        // Least squares, since the system has twice as many equations as unknowns
+        Matrix leftTranspose = left.transpose();
+        Matrix pMatrix = leftTranspose.multiply(left).solve(leftTranspose.multiply(right)).scaleInPlace(-1);
+
+        // P is symmetric, rounding leaves it very slightly off
+        return pMatrix.addInPlace(pMatrix.transpose()).scaleInPlace(0.5);
+    }
+
+    private static Matrix getSign(Matrix hamiltonian)
+    {
+        int size = hamiltonian.getRows();
+        Matrix z = hamiltonian.clone();
+
+        for (int iteration = 0; iteration < MAX_ITERATIONS; ++iteration)
+        {
+            LuDecomposition lu = new LuDecomposition(z);
+            if (lu.isSingular())
+            {
+                throw new IllegalArgumentException("The Hamiltonian has eigenvalues on the imaginary axis, there's no "
+                        + "stabilizing solution");
+            }
+
+            // Scaling by the determinant pulls the eigenvalues towards 1 in magnitude, which saves most of the slow
+            // early iterations. It's left out if the determinant is out of range.
+            double scale = Math.pow(Math.abs(lu.getDeterminant()), -1.0 / size);
+            if (!Double.isFinite(scale) || scale == 0.0)
+                scale = 1.0;
+
+            Matrix next = lu.inverse().scaleInPlace(1.0 / scale).addScaledInPlace(z, scale).scaleInPlace(0.5);
+
+            double change = next.subtract(z).getOneNorm();
+            z = next;
+            if (change <= TOLERANCE * z.getOneNorm())
+                return z;
+        }
+
+        throw new IllegalStateException("Riccati solver didn't converge in " + MAX_ITERATIONS + " iterations");
+    }
+
+    /**
+     * The values of the four matrices and their sizes
+     */
+    private static class Key
+    {
+        private final int[] mDimensions;
+        private final double[] mValues;
+        private final int mHashCode;
+
+        Key(Matrix aMatrix, Matrix bMatrix, Matrix qMatrix, Matrix rMatrix)
+        {
+            Matrix[] matrices = {aMatrix, bMatrix, qMatrix, rMatrix};
+
+            mDimensions = new int[matrices.length * 2];
+            int valueCount = 0;
+            for (int i = 0; i < matrices.length; ++i)
+            {
+                mDimensions[2 * i] = matrices[i].getColumns();
+                mDimensions[2 * i + 1] = matrices[i].getRows();
+                valueCount += matrices[i].getValues().length;
+            }
+
+            mValues = new double[valueCount];
+            int offset = 0;
+            for (Matrix matrix : matrices)
+            {
+                double[] values = matrix.getValues();
+                System.arraycopy(values, 0, mValues, offset, values.length);
+                offset += values.length;
+            }
+
+            mHashCode = 31 * Arrays.hashCode(mDimensions) + Arrays.hashCode(mValues);
+        }
+
+        @Override
+        public boolean equals(Object object)
+        {
+            if (!(object instanceof Key))
+                return false;
+
+            Key key = (Key) object;
+            return mHashCode == key.mHashCode && Arrays.equals(mDimensions, key.mDimensions)
+                    && Arrays.equals(mValues, key.mValues);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return mHashCode;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package root;
+
+/**
+ * PA = LU for a square matrix, with partial pivoting so that every multiplier in L is at most 1 in magnitude. Once it's
+ * been decomposed, solving for any number of right hand sides only takes a forward and a back substitution each.
+ * <p>
+ * L and U are stored together in one column-major array like {@link Matrix}, L below the diagonal with its unit
+ * diagonal left out and U on and above it. Every loop runs down columns so it goes through contiguous memory.
+ */
+public class LuDecomposition
+{
+    private final int mSize;
+    private final double[] mLu;
+    // Row i of the decomposition is row mPivot[i] of the original matrix
+    private final int[] mPivot;
+    private final boolean mEvenPermutation;
+    private final boolean mSingular;
+
+    public LuDecomposition(Matrix matrix)
+    {
+        if (matrix.getColumns() != matrix.getRows())
+            throw new IllegalArgumentException("Cannot decompose non-square matrix");
+
+        int size = matrix.getRows();
+        double[] lu = matrix.getValues().clone();
+        int[] pivot = new int[size];
+        for (int i = 0; i < size; ++i)
+            pivot[i] = i;
+
+        boolean evenPermutation = true;
+        boolean singular = false;
+
+        for (int k = 0; k < size; ++k)
+        {
+            int kOffset = k * size;
+
+            // The largest value left in column k is the pivot
+            int pivotRow = k;
+            for (int row = k + 1; row < size; ++row)
+            {
+                if (Math.abs(lu[kOffset + row]) > Math.abs(lu[kOffset + pivotRow]))
+                    pivotRow = row;
+            }
+
+            if (pivotRow != k)
+            {
+                for (int column = 0; column < size; ++column)
+                {
+                    int offset = column * size;
+                    double swap = lu[offset + k];
+                    lu[offset + k] = lu[offset + pivotRow];
+                    lu[offset + pivotRow] = swap;
+                }
+
+                int swap = pivot[k];
+                pivot[k] = pivot[pivotRow];
+                pivot[pivotRow] = swap;
+                evenPermutation = !evenPermutation;
+            }
+
+            double diagonal = lu[kOffset + k];
+            if (diagonal == 0.0)
+            {
+                // Nothing below it to eliminate, the rest of the decomposition still goes ahead for the determinant
+                singular = true;
+                continue;
+            }
+
+            for (int row = k + 1; row < size; ++row)
+                lu[kOffset + row] /= diagonal;
+
+            for (int column = k + 1; column < size; ++column)
+            {
+                int offset = column * size;
+                double factor = lu[offset + k];
+                if (factor == 0.0)
+                    continue;
+
+                for (int row = k + 1; row < size; ++row)
+                    lu[offset + row] -= lu[kOffset + row] * factor;
+            }
+        }
+
+        mSize = size;
+        mLu = lu;
+        mPivot = pivot;
+        mEvenPermutation = evenPermutation;
+        mSingular = singular;
+    }
+
+    public boolean isSingular()
+    {
+        return mSingular;
+    }
+
+    public double getDeterminant()
+    {
+        double determinant = mEvenPermutation ? 1.0 : -1.0;
+        for (int i = 0; i < mSize; ++i)
+            determinant *= mLu[i * mSize + i];
+
+        return determinant;
+    }
+
+    /**
+     * The x for which the decomposed matrix * x = b, b can have any number of columns. Throws IllegalArgumentException
+     * if the matrix is singular.
+     */
+    public Matrix solve(Matrix b)
+    {
+        if (b.getRows() != mSize)
+        {
+            throw new IllegalArgumentException("Mismatched dimensions, can't solve " + mSize + "x" + mSize + " with "
+                    + b.getRows() + "x" + b.getColumns());
+        }
+
+        if (mSingular)
+            throw new IllegalArgumentException("Matrix is singular");
+
+        Matrix x = new Matrix(b.getColumns(), mSize);
+        double[] bValues = b.getValues();
+        double[] xValues = x.getValues();
+
+        for (int column = 0; column < b.getColumns(); ++column)
+        {
+            int offset = column * mSize;
+
+            for (int row = 0; row < mSize; ++row)
+                xValues[offset + row] = bValues[offset + mPivot[row]];
+
+            // Ly = Pb, L has ones on its diagonal
+            for (int k = 0; k < mSize; ++k)
+            {
+                double value = xValues[offset + k];
+                int kOffset = k * mSize;
+                for (int row = k + 1; row < mSize; ++row)
+                    xValues[offset + row] -= mLu[kOffset + row] * value;
+            }
+
+            // Ux = y
+            for (int k = mSize - 1; k >= 0; --k)
+            {
+                int kOffset = k * mSize;
+                double value = xValues[offset + k] / mLu[kOffset + k];
+                xValues[offset + k] = value;
+                for (int row = 0; row < k; ++row)
+                    xValues[offset + row] -= mLu[kOffset + row] * value;
+            }
+        }
+
+        return x;
+    }
+
+    public Matrix inverse()
+    {
+        return solve(Matrix.identity(mSize));
+    }
+}
@@ -1,72 +1,93 @@
 package root;
 
-import com.github.sh0nk.matplotlib4j.Plot;
-import com.github.sh0nk.matplotlib4j.PythonConfig;
-import com.github.sh0nk.matplotlib4j.PythonExecutionException;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.Label;
 import javafx.scene.control.Slider;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Paint;
 import javafx.scene.shape.Circle;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.transform.Rotate;
 import javafx.stage.Stage;
-import javafx.util.Duration;
 
-import java.io.FileWriter;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
 import java.io.IOException;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 
 public class Main extends Application
 {
+    // A frame that took longer than this, e.g. while the window was being dragged, only advances playback this much
+    private static final long MAX_FRAME_TIME_NS = Constants.millisecondsToNanoseconds(100);
+
     private Pane mRoot;
     private Rectangle mPendulum;
     private Circle mAxle;
 
     private Button mPlayPauseButton;
     private Slider mTimeSelectSlider;
+    private Slider mSpeedSlider;
+    private Label mSpeedLabel;
 
     private boolean mDrawSimulation = Constants.START_WITH_SIMULATION_RUNNING;
-    private boolean mLastLoop = false;
-
-    private HashMap<Long, Matrix> mStates = new HashMap<>(Map.of(0L, Constants.INITIAL_STATE));
-
-    private long mStateToDrawTime = 0;
-    private int mStepsToSkip = (int) (0.1 / Constants.DT_NS);
-
-    private PythonConfig mPythonConfig = PythonConfig.pythonBinPathConfig("C:\\Program Files\\Python38\\python3.exe");
-
-    private Matrix mAMatrix = new Matrix(new ArrayList<>(Arrays.asList(
-            new ArrayList<>(Arrays.asList(0.0, (12 * Constants.PENDULUM_MASS * Constants.GRAVITY * Constants.PENDULUM_LENGTH)
-                    / (Math.pow(Constants.PENDULUM_WIDTH, 2) + 4 * Math.pow(Constants.PENDULUM_LENGTH, 2)))),
-            new ArrayList<>(Arrays.asList(1.0, 0.0))
-    )));
-
-    private Matrix mBMatrix = new Matrix(new ArrayList<>(Collections.singletonList(
-            new ArrayList<>(Arrays.asList(0.0, 24.0 / (Math.pow(Constants.PENDULUM_WIDTH, 2) + 4.0 * Math.pow(Constants.PENDULUM_LENGTH, 2))))
-    )));
-
-    private Matrix mKMatrix = new Matrix(new ArrayList<>(Arrays.asList(
-            new ArrayList<>(Collections.singletonList(((Constants.EIGENVALUE_1 * Constants.EIGENVALUE_2) * (Math.pow(Constants.PENDULUM_WIDTH, 2) + 4.0 * Math.pow(Constants.PENDULUM_LENGTH, 2))
-                    + 12.0 * Constants.PENDULUM_MASS * Constants.GRAVITY * Constants.PENDULUM_LENGTH)
-                    / 24.0)),
-            new ArrayList<>(Collections.singletonList(((-Constants.EIGENVALUE_1 - Constants.EIGENVALUE_2) * (Math.pow(Constants.PENDULUM_WIDTH, 2) + 4.0 * Math.pow(Constants.PENDULUM_LENGTH, 2))
-                    - Constants.VISCOUS_FRICTION)
-                    / 24.0))
-    )));
 
+    private SimulationConfig mConfig = new SimulationConfig.Builder().build();
+
+    // The newest samples, filled in from mSampleQueue as the simulation thread produces them. Older ones come from
+    // mCheckpointStore. Both are only read on the JavaFX thread.
+    private Trajectory mTrajectory;
+    private SampleQueue mSampleQueue;
+    private CheckpointStore mCheckpointStore;
+    private Rotate mRotate;
+
+    // Only set when comparing runs, which are all simulated up front and drawn instead of the single pendulum
+    private ComparisonView mComparisonView;
+
+    // Fractional so that slow playback still moves a little every frame
+    private double mPlaybackTimeNs = 0;
+    private double mPlaybackSpeed = Constants.PLAYBACK_SPEED;
+    private long mLastFrameTime = -1;
+    // The samples either side of the playback time, kept so older ones aren't replayed from a checkpoint every frame
+    private int mFrameSample = -1;
+    private double mFrameTheta;
+    private double mFrameNextTheta;
+
+    /**
+     * "--scenario file name" shows that scenario from a scenario file instead of the one in {@link Constants}.
+     * "--compare file" shows every scenario in a scenario file side by side, and "--compare sweep" followed by
+     * parameter=start:end:count arguments does the same for every point of a {@link ParameterSweep} of the scenario in
+     * {@link Constants}.
+     */
     @Override
-    public void start(Stage stage)
+    public void start(Stage stage) throws IOException
     {
+        Metrics.startReporting();
+
+        List<String> parameters = getParameters().getRaw();
+        if (parameters.size() > 2 && parameters.get(0).equals("--scenario"))
+            mConfig = ScenarioParser.find(ScenarioParser.load(parameters.get(1)), parameters.get(2)).config;
+
         mRoot = new Pane();
         mRoot.setPrefWidth(Constants.FRAME_WIDTH);
         mRoot.setPrefHeight(Constants.FRAME_HEIGHT);
         mRoot.setStyle("-fx-background-color: #262626;");
 
+        if (parameters.size() > 1 && parameters.get(0).equals("--compare"))
+        {
+            startComparison(stage, getComparedConfigs(parameters));
+            return;
+        }
+
         mPendulum = new Rectangle();
         mPendulum.setWidth(Constants.PENDULUM_WIDTH * Constants.PIXELS_PER_METER);
         mPendulum.setHeight(Constants.PENDULUM_LENGTH * Constants.PIXELS_PER_METER);
@@ -77,6 +98,10 @@ public class Main extends Application
         mPendulum.setStrokeWidth(0.5);
         mRoot.getChildren().add(mPendulum);
 
+        mRotate = new Rotate(0, mPendulum.getX() + (mPendulum.getWidth() / 2), mPendulum.getY() + mPendulum.getHeight(),
+                0, Rotate.Z_AXIS);
+        mPendulum.getTransforms().add(mRotate);
+
         mAxle = new Circle();
         mAxle.setRadius(Constants.AXLE_RADIUS * Constants.PIXELS_PER_METER);
         mAxle.setCenterX(mPendulum.getX() + (mPendulum.getWidth() / 2));
@@ -84,6 +109,92 @@ public class Main extends Application
         mAxle.setFill(Paint.valueOf("#999999"));
         mRoot.getChildren().add(mAxle);
 
+        addPlaybackControls();
+
+        mTrajectory = Trajectory.ring(Constants.PLAYBACK_BUFFER_SAMPLES);
+        mCheckpointStore = CheckpointStore.fromConstants(mConfig);
+        mSampleQueue = new SampleQueue(Constants.SAMPLE_QUEUE_CAPACITY);
+
+        // Simulate in the background so drawing can start with the first samples instead of after the whole run
+        Thread simulationThread = new Thread(this::simulate, "simulation");
+        simulationThread.setDaemon(true);
+        simulationThread.start();
+
+        startPlayback(stage);
+    }
+
+    /**
+     * Simulates configs on a background thread and draws them all on one canvas once they're done, with the same
+     * playback controls as a single run
+     */
+    private void startComparison(Stage stage, List<SimulationConfig> configs)
+    {
+        mComparisonView = new ComparisonView(mRoot.getPrefWidth(), mRoot.getPrefHeight() - 95);
+        mComparisonView.getCanvas().setLayoutY(45);
+        mRoot.getChildren().add(mComparisonView.getCanvas());
+
+        addPlaybackControls();
+
+        Button overlayButton = new Button("Overlay");
+        overlayButton.setLayoutX(mRoot.getPrefWidth() - 80);
+        overlayButton.setLayoutY(10);
+        overlayButton.setOnAction((actionEvent) ->
+        {
+            mComparisonView.setOverlaid(!mComparisonView.isOverlaid());
+            overlayButton.setText(mComparisonView.isOverlaid() ? "Tile" : "Overlay");
+        });
+        mRoot.getChildren().add(overlayButton);
+
+        Thread simulationThread = new Thread(() ->
+        {
+            ComparisonTrajectories trajectories;
+            try
+            {
+                trajectories = ComparisonTrajectories.simulate(configs);
+            } catch (RuntimeException e)
+            {
+                // Otherwise the window would stay empty with nothing to say why
+                e.printStackTrace();
+                Platform.runLater(() -> new Alert(Alert.AlertType.ERROR, "Couldn't simulate the runs to compare: "
+                        + e.getMessage()).show());
+                return;
+            }
+
+            Platform.runLater(() ->
+            {
+                mTimeSelectSlider.setMax(trajectories.getDurationNs());
+                mComparisonView.setTrajectories(trajectories);
+            });
+        }, "simulation");
+        simulationThread.setDaemon(true);
+        simulationThread.start();
+
+        startPlayback(stage);
+    }
+
+    private List<SimulationConfig> getComparedConfigs(List<String> parameters) throws IOException
+    {
+        List<SimulationConfig> configs = new ArrayList<>();
+
+        if (parameters.get(1).equals("sweep"))
+        {
+            ParameterSweep sweep = new ParameterSweep(mConfig);
+            for (String range : parameters.subList(2, parameters.size()))
+                sweep.setRange(range);
+
+            for (int point = 0; point < sweep.getPointCount(); ++point)
+                configs.add(sweep.getConfig(point));
+        } else
+        {
+            for (Scenario scenario : ScenarioParser.load(parameters.get(1)))
+                configs.add(scenario.config);
+        }
+
+        return configs;
+    }
+
+    private void addPlaybackControls()
+    {
         mPlayPauseButton = new Button();
         mPlayPauseButton.setText(mDrawSimulation ? "Pause" : "Play");
         mPlayPauseButton.setLayoutX(10);
@@ -95,257 +206,227 @@ public class Main extends Application
         });
         mRoot.getChildren().add(mPlayPauseButton);
 
+        // The slider is log10 of the speed, so every factor of 10 gets the same room
+        mSpeedSlider = new Slider(Math.log10(Constants.MIN_PLAYBACK_SPEED), Math.log10(Constants.MAX_PLAYBACK_SPEED),
+                Math.log10(Constants.PLAYBACK_SPEED));
+        mSpeedSlider.setLayoutX(80);
+        mSpeedSlider.setLayoutY(15);
+        mSpeedSlider.setPrefWidth(150);
+        mRoot.getChildren().add(mSpeedSlider);
+
+        mSpeedLabel = new Label();
+        mSpeedLabel.setLayoutX(240);
+        mSpeedLabel.setLayoutY(13);
+        mSpeedLabel.setStyle("-fx-text-fill: white;");
+        mRoot.getChildren().add(mSpeedLabel);
+        setPlaybackSpeed(Constants.PLAYBACK_SPEED);
+
+        mSpeedSlider.valueProperty().addListener((observable, oldValue, newValue) ->
+                setPlaybackSpeed(Math.pow(10, newValue.doubleValue())));
+
         mTimeSelectSlider = new Slider();
-        mTimeSelectSlider.setMax(Constants.TIMESPAN);
+        mTimeSelectSlider.setMax(mConfig.timespanNs);
         mTimeSelectSlider.setLayoutX(10);
         mTimeSelectSlider.setLayoutY(mRoot.getPrefHeight() - 40);
         mTimeSelectSlider.setPrefWidth(mRoot.getPrefWidth() - 20);
         mTimeSelectSlider.setOnMouseDragged((mouseEvent) ->
         {
             mPlayPauseButton.setText("Play");
-            mStateToDrawTime = (long) mTimeSelectSlider.getValue();
-            mDrawSimulation = true;
-            mLastLoop = true;
+            mPlaybackTimeNs = mTimeSelectSlider.getValue();
+            mDrawSimulation = false;
         });
         mRoot.getChildren().add(mTimeSelectSlider);
+    }
 
-        ArrayList<Double> inputTorqueValues = new ArrayList<>();
-
-        double previousI = 0.0;
-        Matrix state = Constants.INITIAL_STATE.clone();
-        for (long t = 0; t < Constants.TIMESPAN; t += Constants.DT_NS)
+    /**
+     * Runs once per displayed frame however often samples are saved, and only ever looks at the two samples either side
+     * of the playback time, so a frame costs the same at any sample rate and playback speed
+     */
+    private void startPlayback(Stage stage)
+    {
+        AnimationTimer drawSimulationTimer = new AnimationTimer()
         {
-            if (!Constants.LINEARIZED)
-                state.set(0, 0, getBoundedAngle(getTheta(state)));
+            @Override
+            public void handle(long now)
+            {
+                long frameTime = mLastFrameTime < 0 ? 0 : Math.min(now - mLastFrameTime, MAX_FRAME_TIME_NS);
+                mLastFrameTime = now;
+                drawFrame(frameTime);
+            }
+        };
+        drawSimulationTimer.start();
 
-            double inputTorque = 0.0;
+        stage.setTitle("Inverted Pendulum Simulator");
+        stage.setScene(new Scene(mRoot));
 
-            if (Constants.USE_PID)
-            {
-                double P = Constants.KP * getTheta(state);
-                double I = Constants.KI * getTheta(state) * Constants.DT_S + previousI;
-                double D = Constants.KD * getThetaDot(state);
+        if (Constants.VISUALIZE)
+            stage.show();
+    }
+
+    @Override
+    public void stop()
+    {
+        // Stop the simulation thread waiting for space that will never be freed
+        if (mSampleQueue != null)
+            mSampleQueue.close();
+    }
 
-                previousI = I;
+    private void setPlaybackSpeed(double speed)
+    {
+        mPlaybackSpeed = speed;
+        mSpeedLabel.setText(String.format(Locale.ROOT, speed < 1 ? "%.2fx" : "%.1fx", speed));
+    }
 
-                inputTorque = -(P + I + D);
-            }
+    private void drawFrame(long frameTime)
+    {
+        if (mComparisonView != null)
+        {
+            drawComparison(frameTime);
+            return;
+        }
 
-            if (Constants.USE_EIGENVALUE_PLACEMENT)
-            {
-                // The multiplication returns a scalar packaged in a 1x1 matrix
-                inputTorque = -mKMatrix.multiply(state).get(0, 0);
-            }
+        mSampleQueue.drainTo(mTrajectory, mSampleQueue.getCapacity());
+        if (mTrajectory.size() == 0)
+            return;
 
-            if (Math.abs(inputTorque) > Constants.MAX_TORQUE_OUTPUT)
-                inputTorque = Math.copySign(Constants.MAX_TORQUE_OUTPUT, inputTorque);
+        // Hold on the newest sample until the simulation gets further than it
+        advancePlayback(frameTime, (double) (mTrajectory.getEndSample() - 1) * mConfig.saveStateEveryXNs);
 
-            if (t % Constants.SAVE_STATE_EVERY_X_NS == 0)
-                inputTorqueValues.add(inputTorque);
+        double position = mPlaybackTimeNs / mConfig.saveStateEveryXNs;
+        int sample = (int) position;
+        double theta;
 
-            if (Constants.INCLUDE_PERTURBATIONS)
+        if (sample + 1 < mTrajectory.getEndSample())
+        {
+            if (sample != mFrameSample)
             {
-                for (Perturbation perturbation : Constants.PERTURBATIONS)
-                {
-                    if (t >= perturbation.time && t <= perturbation.time + perturbation.duration)
-                        inputTorque += perturbation.force;
-                }
+                mFrameTheta = mFrameSample >= 0 && sample == mFrameSample + 1 ? mFrameNextTheta : getTheta(sample);
+                mFrameNextTheta = getTheta(sample + 1);
+                mFrameSample = sample;
             }
 
-            /*
-            The system is time-invariant, so the only parameters for the functions should be the state of the system
-
-            y(x) represents the system
-            f(y) represents the derivative of the system
+            // Interpolated the short way round, so it doesn't spin when it wraps at +-pi
+            theta = mFrameTheta + PendulumModel.getBoundedAngle(mFrameNextTheta - mFrameTheta) * (position - sample);
+        } else
+        {
+            theta = getTheta(sample);
+        }
 
-            Begin at y_0, the initial conditions of the system, which will mutate themselves during the calculations
+        mRotate.setAngle(-Math.toDegrees(theta));
+        mTimeSelectSlider.setValue(mPlaybackTimeNs);
+    }
 
-            k_1 = f(y(now))
-            k_2 = f(y(now) + step * k_1 / 2)
-            k_3 = f(y(now) + step * k_2 / 2)
-            k_4 = f(y(now) + step * k_3)
+    private void drawComparison(long frameTime)
+    {
+        ComparisonTrajectories trajectories = mComparisonView.getTrajectories();
+        if (trajectories != null)
+            advancePlayback(frameTime, trajectories.getDurationNs());
 
-            y(next) = y(now) + 1/6 * step * (k_1 + 2k_2 + 2k_3 + k4)
-            t(next) = t(now) + step
+        mComparisonView.draw(mPlaybackTimeNs);
+        mTimeSelectSlider.setValue(mPlaybackTimeNs);
+    }
 
-            Save a clone of the state
-            Mutate the state
-            Continue until we've elapsed enough time
-            */
+    private void advancePlayback(long frameTime, double endTimeNs)
+    {
+        if (mDrawSimulation)
+            mPlaybackTimeNs += frameTime * mPlaybackSpeed;
 
-            Matrix k1 = getDerivativeOfSystemAt(state, inputTorque);
-            Matrix k2 = getDerivativeOfSystemAt(state.add(k1.multiply(Constants.DT_S / 2.0)), inputTorque);
-            Matrix k3 = getDerivativeOfSystemAt(state.add(k2.multiply(Constants.DT_S / 2.0)), inputTorque);
-            Matrix k4 = getDerivativeOfSystemAt(state.add(k3.multiply(Constants.DT_S)), inputTorque);
+        mPlaybackTimeNs = Math.max(0, Math.min(mPlaybackTimeNs, endTimeNs));
+    }
 
-            // dy = 1/6 * step * (k_1 + 2k_2 + 2k_3 + k4)
-            Matrix deltaStateMatrix = k1.add(k2.multiply(2)).add(k3.multiply(2)).add(k4).multiply((1.0 / 6.0) * Constants.DT_S);
+    private double getTheta(int sample)
+    {
+        if (mTrajectory.contains(sample))
+            return mTrajectory.getTheta(sample);
 
-            state = state.add(deltaStateMatrix);
+        mCheckpointStore.seek(sample);
+        return mCheckpointStore.getTheta();
+    }
 
-            if (t % Constants.SAVE_STATE_EVERY_X_NS == 0)
-                mStates.put(t, state.clone());
-        }
+    /**
+     * Runs on the simulation thread, writing the files as samples are produced and showing the plots at the end
+     */
+    private void simulate()
+    {
+        CsvExporter thetaExporter = null;
+        CsvExporter torqueExporter = null;
+        BinaryTrajectoryWriter binaryWriter = null;
+        TrajectoryPlots plots = Constants.SHOW_PLOTS ? TrajectoryPlots.forConfig(mConfig) : null;
 
-        final Timeline drawSimulationTimeline = new Timeline(
-                new KeyFrame(Duration.ZERO, event ->
-                {
-                    if (mDrawSimulation)
-                    {
-                        long stateToDrawTime = (int) (mStateToDrawTime / Constants.SAVE_STATE_EVERY_X_NS) * Constants.SAVE_STATE_EVERY_X_NS;
-
-                        if (stateToDrawTime == Constants.TIMESPAN)
-                            stateToDrawTime -= Constants.SAVE_STATE_EVERY_X_NS;
-
-                        mPendulum.getTransforms().clear();
-                        mPendulum.getTransforms().add(new Rotate(-Math.toDegrees(getTheta(mStates.get(stateToDrawTime))),
-                                mPendulum.getX() + (mPendulum.getWidth() / 2), mPendulum.getY() + mPendulum.getHeight(), 0, Rotate.Z_AXIS));
-
-                        mTimeSelectSlider.setValue(mStateToDrawTime);
-
-                        if (stateToDrawTime + Constants.SAVE_STATE_EVERY_X_NS < Constants.TIMESPAN)
-                            mStateToDrawTime = stateToDrawTime + Constants.SAVE_STATE_EVERY_X_NS;
-
-                        if (mLastLoop)
-                        {
-                            mDrawSimulation = false;
-                            mLastLoop = false;
-                        }
-                    }
-                }),
-                new KeyFrame(Duration.seconds(Constants.nanosecondsToSeconds(Constants.SAVE_STATE_EVERY_X_NS)))
-        );
-        drawSimulationTimeline.setCycleCount(Timeline.INDEFINITE);
-        drawSimulationTimeline.play();
-
-        HashMap<Long, Double> thetaValues = new HashMap<>();
-        for (Map.Entry<Long, Matrix> pair : mStates.entrySet())
-            thetaValues.put(pair.getKey(), getTheta(pair.getValue()));
-
-        if (Constants.FIX_STUPID_PLOTS)
+        try
         {
-            for (long t = Constants.SAVE_STATE_EVERY_X_NS; t < Constants.TIMESPAN; t += Constants.SAVE_STATE_EVERY_X_NS)
-            {
-                if (Math.abs(thetaValues.get(t) - thetaValues.get(t - Constants.SAVE_STATE_EVERY_X_NS)) > 0.5)
-                {
-                    thetaValues.put(t, thetaValues.get(t) + Math.copySign(2 * Math.PI, thetaValues.get(t - Constants.SAVE_STATE_EVERY_X_NS)));
-                }
-            }
-        }
+            if (Constants.SAVE_TO_CSV && Constants.SAVE_THETA)
+                thetaExporter = CsvExporter.theta("theta.csv", mConfig);
 
-        if (Constants.SAVE_TO_CSV)
-        {
-            if (Constants.SAVE_THETA)
-            {
-                try
-                {
-                    FileWriter fileWriter = new FileWriter("theta.csv");
-
-                    for (long t = 0L; t < Constants.TIMESPAN; t += Constants.SAVE_STATE_EVERY_X_NS)
-                    {
-                        fileWriter.append(String.valueOf(Constants.nanosecondsToSeconds(t)))
-                                .append(",")
-                                .append(String.valueOf(thetaValues.get(t)))
-                                .append('\n');
-                    }
-
-                    fileWriter.close();
-                } catch (IOException e)
-                {
-                    e.printStackTrace();
-                }
-            }
+            if (Constants.SAVE_TO_CSV && Constants.SAVE_TORQUE)
+                torqueExporter = CsvExporter.torque("torque.csv", mConfig);
 
-            if (Constants.SAVE_TORQUE)
-            {
-                try
-                {
-                    FileWriter fileWriter = new FileWriter("torque.csv");
-
-                    for (int i = 0; i < inputTorqueValues.size(); ++i)
-                    {
-                        fileWriter.append(String.valueOf(i * Constants.nanosecondsToSeconds(Constants.SAVE_STATE_EVERY_X_NS)))
-                                .append(",")
-                                .append(String.valueOf(inputTorqueValues.get(i)))
-                                .append('\n');
-                    }
-
-                    fileWriter.close();
-                } catch (IOException e)
-                {
-                    e.printStackTrace();
-                }
-            }
-        }
+            if (Constants.SAVE_TO_BINARY)
+                binaryWriter = new BinaryTrajectoryWriter("trajectory.bin", mConfig.saveStateEveryXNs);
 
-        if (Constants.SHOW_PLOTS)
+            mCheckpointStore.simulate(SampleListener.of(mSampleQueue, plots, thetaExporter, torqueExporter,
+                    binaryWriter));
+        } catch (IOException e)
         {
-            ArrayList<Double> newThetaValues = new ArrayList<>();
-
-            for (long t = 0L; t < Constants.TIMESPAN; t += Constants.SAVE_STATE_EVERY_X_NS)
-                newThetaValues.add(thetaValues.get(t));
-
-            Plot thetaPlot = Plot.create(mPythonConfig);
-            thetaPlot.title("Theta");
-            thetaPlot.plot().add(newThetaValues);
-            Plot inputTorquePlot = Plot.create(mPythonConfig);
-            inputTorquePlot.title("Input Torque");
-            inputTorquePlot.plot().add(inputTorqueValues);
-
-            try
-            {
-                thetaPlot.show();
-                inputTorquePlot.show();
-            } catch (IOException | PythonExecutionException e)
-            {
-                e.printStackTrace();
-            }
+            e.printStackTrace();
+            return;
+        } finally
+        {
+            mSampleQueue.finish();
+            close(thetaExporter);
+            close(torqueExporter);
+            close(binaryWriter);
         }
 
-        stage.setTitle("Inverted Pendulum Simulator");
-        stage.setScene(new Scene(mRoot));
-
-        if (Constants.VISUALIZE)
-            stage.show();
+        if (Constants.SHOW_PLOTS)
+            showPlots(plots);
     }
 
-    private double getBoundedAngle(double angle)
+    /**
+     * Renders the plots here and shows each one in its own window on the JavaFX thread
+     */
+    private void showPlots(TrajectoryPlots plots)
     {
-        int fullRotations = (int) (Math.abs(angle) / (2 * Math.PI));
-
-        double newAngle = angle - (fullRotations * (2 * Math.PI));
-        if (newAngle > Math.PI)
-            newAngle -= (2 * Math.PI);
-        else if (newAngle < -Math.PI)
-            newAngle += (2 * Math.PI);
+        WritableImage thetaImage = toFxImage(plots.getThetaPlot().render());
+        WritableImage torqueImage = toFxImage(plots.getTorquePlot().render());
 
-        return newAngle;
+        Platform.runLater(() ->
+        {
+            showImage("Theta", thetaImage);
+            showImage("Input Torque", torqueImage);
+        });
     }
 
-    private Matrix getDerivativeOfSystemAt(Matrix state, double inputTorque)
+    private static WritableImage toFxImage(BufferedImage image)
     {
-        if (Constants.LINEARIZED)
-        {
-            return mAMatrix.multiply(state).add(mBMatrix.multiply(inputTorque));
-        } else
-        {
-            return new Matrix(new ArrayList<>(Collections.singletonList(new ArrayList<>(Arrays.asList(
-                    getThetaDot(state),
-                    12 * (Constants.PENDULUM_MASS * Constants.GRAVITY * Constants.PENDULUM_LENGTH * Math.sin(getTheta(state))
-                            + 2 * inputTorque
-                            - 2 * getThetaDot(state) * Constants.VISCOUS_FRICTION)
-                            / (Math.pow(Constants.PENDULUM_WIDTH, 2) + 4 * Math.pow(Constants.PENDULUM_LENGTH, 2))
-            )))));
-        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+
+        WritableImage fxImage = new WritableImage(width, height);
+        fxImage.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        return fxImage;
     }
 
-    private double getTheta(Matrix state)
+    private static void showImage(String title, WritableImage image)
     {
-        return state.get(0, 0);
+        Stage stage = new Stage();
+        stage.setTitle(title);
+        stage.setScene(new Scene(new Pane(new ImageView(image))));
+        stage.show();
     }
 
-    private double getThetaDot(Matrix state)
+    private static void close(Closeable closeable)
     {
-        return state.get(0, 1);
+        if (closeable == null)
+            return;
+
+        try
+        {
+            closeable.close();
+        } catch (IOException e)
+        {
+            e.printStackTrace();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,106 @@
+package root;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file written by {@link BinaryTrajectoryWriter} mapped into memory, so samples are read straight from the page
+ * cache without parsing or copying the whole file. Files have to be under 2 GB, which is about 67 million samples.
+ */
+public class MappedTrajectory
+{
+    private final DoubleBuffer mRecords;
+    private final int mSampleCount;
+    private final double mSamplePeriodS;
+
+    private MappedTrajectory(MappedByteBuffer buffer)
+    {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.getInt(0) != BinaryTrajectoryWriter.MAGIC)
+            throw new IllegalArgumentException("Not a trajectory file");
+
+        int version = buffer.getInt(4);
+        if (version != BinaryTrajectoryWriter.VERSION)
+            throw new IllegalArgumentException("Unsupported trajectory file version " + version);
+
+        long sampleCount = buffer.getLong(BinaryTrajectoryWriter.SAMPLE_COUNT_OFFSET);
+        if (sampleCount > (buffer.capacity() - BinaryTrajectoryWriter.HEADER_SIZE) / BinaryTrajectoryWriter.RECORD_SIZE)
+            throw new IllegalArgumentException("Trajectory file is truncated, expected " + sampleCount + " samples");
+
+        mSampleCount = (int) sampleCount;
+        mSamplePeriodS = buffer.getDouble(BinaryTrajectoryWriter.SAMPLE_PERIOD_OFFSET);
+
+        buffer.position(BinaryTrajectoryWriter.HEADER_SIZE);
+        ByteBuffer records = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        mRecords = records.asDoubleBuffer();
+    }
+
+    public static MappedTrajectory open(String fileName) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ))
+        {
+            if (channel.size() < BinaryTrajectoryWriter.HEADER_SIZE || channel.size() > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Trajectory file has an invalid size of " + channel.size() + " bytes");
+
+            // The mapping stays valid after the channel is closed
+            return new MappedTrajectory(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int size()
+    {
+        return mSampleCount;
+    }
+
+    public double getSamplePeriodS()
+    {
+        return mSamplePeriodS;
+    }
+
+    public double getTime(int sample)
+    {
+        return get(sample, 0);
+    }
+
+    public double getTheta(int sample)
+    {
+        return get(sample, 1);
+    }
+
+    public double getThetaDot(int sample)
+    {
+        return get(sample, 2);
+    }
+
+    public double getTorque(int sample)
+    {
+        return get(sample, 3);
+    }
+
+    /**
+     * Copies every sample into a trajectory
+     */
+    public Trajectory toTrajectory()
+    {
+        Trajectory trajectory = new Trajectory(Math.max(1, mSampleCount));
+        for (int i = 0; i < mSampleCount; ++i)
+            trajectory.add(getTime(i), getTheta(i), getThetaDot(i), getTorque(i));
+
+        return trajectory;
+    }
+
+    private double get(int sample, int column)
+    {
+        if (sample < 0 || sample >= mSampleCount)
+            throw new IndexOutOfBoundsException("Sample " + sample + " is not in the file, it has " + mSampleCount);
+
+        return mRecords.get(sample * BinaryTrajectoryWriter.COLUMNS + column);
+    }
+}
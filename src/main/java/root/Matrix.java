@@ -7,81 +7,123 @@ import java.util.Arrays;
 
 public class Matrix
 {
-    private ArrayList<ArrayList<Double>> mValues;
+    // With the norm scaled down to 1/2 the terms are below double precision long before this
+    private static final int MAX_EXPONENTIAL_TERMS = 30;
+    // 32 x 32 doubles is 8 kB, so a block of each operand and a destination column fit in L1 together
+    private static final int BLOCK_SIZE = 32;
+
+    private final int mColumns;
+    private final int mRows;
+
+    // Column-major, so the value at (column, row) lives at column * mRows + row
+    private final double[] mValues;
 
     public Matrix(int columns, int rows)
     {
-        mValues = new ArrayList<>();
+        mColumns = columns;
+        mRows = rows;
+        mValues = new double[columns * rows];
+    }
+
+    public Matrix(ArrayList<ArrayList<Double>> values)
+    {
+        this(values.size(), values.get(0).size());
 
-        for (int column = 0; column < columns; ++column)
+        for (int column = 0; column < mColumns; ++column)
         {
-            ArrayList<Double> columnValues = new ArrayList<>();
-            for (int row = 0; row < rows; ++row)
+            for (int row = 0; row < mRows; ++row)
             {
-                columnValues.add(0.0);
+                mValues[column * mRows + row] = values.get(column).get(row);
             }
-            mValues.add(columnValues);
         }
     }
 
-    public Matrix(ArrayList<ArrayList<Double>> values)
+    public static Matrix identity(int size)
     {
-        this.mValues = values;
+        Matrix identity = new Matrix(size, size);
+        for (int i = 0; i < size; ++i)
+        {
+            identity.mValues[i * size + i] = 1.0;
+        }
+        return identity;
     }
 
+    /**
+     * Returns a copy of the column, changes to the list are not reflected in the matrix
+     */
     public ArrayList<Double> getColumn(int column)
     {
-        return mValues.get(column);
+        ArrayList<Double> columnArrayList = new ArrayList<>();
+        for (int row = 0; row < mRows; ++row)
+        {
+            columnArrayList.add(mValues[column * mRows + row]);
+        }
+        return columnArrayList;
     }
 
     public ArrayList<Double> getRow(int row)
     {
         ArrayList<Double> rowArrayList = new ArrayList<>();
-        for (ArrayList<Double> column : mValues)
+        for (int column = 0; column < mColumns; ++column)
         {
-            rowArrayList.add(column.get(row));
+            rowArrayList.add(mValues[column * mRows + row]);
         }
         return rowArrayList;
     }
 
     public double get(int column, int row)
     {
-        return mValues.get(column).get(row);
+        return mValues[column * mRows + row];
     }
 
     public void set(int column, int row, double value)
     {
-        mValues.get(column).set(row, value);
+        mValues[column * mRows + row] = value;
     }
 
     public int getRows()
     {
-        return mValues.get(0).size();
+        return mRows;
     }
 
     public int getColumns()
     {
-        return mValues.size();
+        return mColumns;
     }
 
     public Matrix add(Matrix matrix)
     {
-        if (getColumns() != matrix.getColumns() || getRows() != matrix.getRows())
+        return clone().addInPlace(matrix);
+    }
+
+    /**
+     * Adds the matrix to this one without allocating, returns this matrix
+     */
+    public Matrix addInPlace(Matrix matrix)
+    {
+        checkSameDimensions(matrix);
+
+        for (int i = 0; i < mValues.length; ++i)
         {
-            System.out.println("Mismatched dimensions");
-            System.exit(-1);
+            mValues[i] += matrix.mValues[i];
         }
 
-        Matrix returnMatrix = new Matrix(getColumns(), getRows());
-        for (int column = 0; column < getColumns(); ++column)
+        return this;
+    }
+
+    /**
+     * Adds matrix * d to this one without allocating, returns this matrix
+     */
+    public Matrix addScaledInPlace(Matrix matrix, double d)
+    {
+        checkSameDimensions(matrix);
+
+        for (int i = 0; i < mValues.length; ++i)
         {
-            for (int row = 0; row < getRows(); ++row)
-            {
-                returnMatrix.set(column, row, mValues.get(column).get(row) + matrix.mValues.get(column).get(row));
-            }
+            mValues[i] += matrix.mValues[i] * d;
         }
 
-        return returnMatrix;
+        return this;
     }
 
     public Matrix subtract(Matrix matrix)
@@ -91,90 +133,251 @@ public class Matrix
 
     public Matrix multiply(Matrix matrix)
     {
-        if (getColumns() != matrix.getRows())
+        return multiplyInto(matrix, new Matrix(matrix.getColumns(), getRows()));
+    }
+
+    /**
+     * Writes this * matrix into destination without allocating, returns destination. The destination must not be
+     * either of the operands.
+     */
+    public Matrix multiplyInto(Matrix matrix, Matrix destination)
+    {
+        if (getColumns() != matrix.getRows()
+                || destination.getColumns() != matrix.getColumns() || destination.getRows() != getRows())
         {
-            System.out.println("Mismatched dimensions");
-            System.exit(-1);
+            throw new IllegalArgumentException("Mismatched dimensions, can't multiply " + getRows() + "x" + getColumns()
+                    + " by " + matrix.getRows() + "x" + matrix.getColumns() + " into "
+                    + destination.getRows() + "x" + destination.getColumns());
         }
 
-        Matrix returnMatrix = new Matrix(matrix.getColumns(), getRows());
+        if (destination == this || destination == matrix)
+            throw new IllegalArgumentException("The destination can't be one of the operands");
+
+        double[] values = mValues;
+        double[] matrixValues = matrix.mValues;
+        double[] destinationValues = destination.mValues;
+        int rows = mRows;
+        int inner = mColumns;
 
-        for (int row = 0; row < getRows(); ++row)
+        Arrays.fill(destinationValues, 0.0);
+
+        // Every column of the destination is built up from whole columns of this matrix, so the innermost loop runs
+        // down contiguous memory and can be vectorized. Working through BLOCK_SIZE x BLOCK_SIZE blocks of this matrix
+        // keeps each block in cache while every destination column uses it. Each value still sums its products in
+        // order, so the result is the same as a plain dot product.
+        for (int innerBlock = 0; innerBlock < inner; innerBlock += BLOCK_SIZE)
         {
-            for (int column = 0; column < matrix.getColumns(); ++column)
+            int innerEnd = Math.min(innerBlock + BLOCK_SIZE, inner);
+
+            for (int rowBlock = 0; rowBlock < rows; rowBlock += BLOCK_SIZE)
             {
-                double dotProduct = 0;
-                for (int value = 0; value < getColumns(); ++value)
+                int rowEnd = Math.min(rowBlock + BLOCK_SIZE, rows);
+
+                for (int column = 0; column < matrix.mColumns; ++column)
                 {
-                    dotProduct += mValues.get(value).get(row) * matrix.mValues.get(column).get(value);
+                    int destinationOffset = column * rows;
+
+                    for (int value = innerBlock; value < innerEnd; ++value)
+                    {
+                        double factor = matrixValues[column * inner + value];
+                        int offset = value * rows;
+
+                        for (int row = rowBlock; row < rowEnd; ++row)
+                        {
+                            destinationValues[destinationOffset + row] += values[offset + row] * factor;
+                        }
+                    }
                 }
-
-                returnMatrix.set(column, row, dotProduct);
             }
         }
 
-        return returnMatrix;
+        return destination;
     }
 
     public Matrix multiply(double d)
     {
-        Matrix returnMatrix = new Matrix(getColumns(), getRows());
+        return clone().scaleInPlace(d);
+    }
 
-        for (int column = 0; column < getColumns(); ++column)
+    /**
+     * Multiplies every value by d without allocating, returns this matrix
+     */
+    public Matrix scaleInPlace(double d)
+    {
+        for (int i = 0; i < mValues.length; ++i)
         {
-            for (int row = 0; row < getRows(); ++row)
+            mValues[i] *= d;
+        }
+
+        return this;
+    }
+
+    /**
+     * Overwrites this matrix with the values of another of the same size, returns this matrix
+     */
+    public Matrix copyFrom(Matrix matrix)
+    {
+        checkSameDimensions(matrix);
+
+        System.arraycopy(matrix.mValues, 0, mValues, 0, mValues.length);
+
+        return this;
+    }
+
+    public Matrix transpose()
+    {
+        Matrix transpose = new Matrix(mRows, mColumns);
+        for (int column = 0; column < mColumns; ++column)
+        {
+            for (int row = 0; row < mRows; ++row)
             {
-                returnMatrix.set(column, row, get(column, row) * d);
+                transpose.mValues[row * mColumns + column] = mValues[column * mRows + row];
             }
         }
+        return transpose;
+    }
+
+    /**
+     * A copy of the columns x rows block whose top left corner is at (column, row)
+     */
+    public Matrix getBlock(int column, int row, int columns, int rows)
+    {
+        if (column < 0 || row < 0 || column + columns > mColumns || row + rows > mRows)
+            throw new IndexOutOfBoundsException("Block doesn't fit in " + mRows + "x" + mColumns);
+
+        Matrix block = new Matrix(columns, rows);
+        for (int i = 0; i < columns; ++i)
+        {
+            System.arraycopy(mValues, (column + i) * mRows + row, block.mValues, i * rows, rows);
+        }
+        return block;
+    }
+
+    /**
+     * Copies block into this matrix with its top left corner at (column, row), returns this matrix
+     */
+    public Matrix setBlock(int column, int row, Matrix block)
+    {
+        if (column < 0 || row < 0 || column + block.mColumns > mColumns || row + block.mRows > mRows)
+            throw new IndexOutOfBoundsException("Block doesn't fit in " + mRows + "x" + mColumns);
 
-        return returnMatrix;
+        for (int i = 0; i < block.mColumns; ++i)
+        {
+            System.arraycopy(block.mValues, i * block.mRows, mValues, (column + i) * mRows + row, block.mRows);
+        }
+        return this;
     }
 
-    public double getDeterminant()
+    /**
+     * The largest sum of absolute values in a column
+     */
+    public double getOneNorm()
+    {
+        double norm = 0.0;
+        for (int column = 0; column < mColumns; ++column)
+        {
+            double sum = 0.0;
+            for (int row = 0; row < mRows; ++row)
+            {
+                sum += Math.abs(mValues[column * mRows + row]);
+            }
+            norm = Math.max(norm, sum);
+        }
+        return norm;
+    }
+
+    /**
+     * e to the power of this square matrix, by scaling and squaring. The matrix is halved until its norm is at most
+     * 1/2, where the Taylor series converges to double precision in a dozen or so terms, and the exponential of that
+     * is squared back up.
+     */
+    public Matrix exponential()
     {
         if (getColumns() != getRows())
+            throw new IllegalArgumentException("Cannot compute the exponential of a non-square matrix");
+
+        double norm = getOneNorm();
+        if (Double.isNaN(norm) || Double.isInfinite(norm))
+            throw new IllegalArgumentException("Cannot compute the exponential of a matrix that isn't finite");
+
+        int squarings = norm > 0.5 ? Math.getExponent(norm) + 2 : 0;
+        Matrix scaled = multiply(Math.scalb(1.0, -squarings));
+
+        Matrix result = identity(mRows);
+        Matrix term = identity(mRows);
+        Matrix nextTerm = new Matrix(mColumns, mRows);
+        for (int k = 1; k <= MAX_EXPONENTIAL_TERMS; ++k)
         {
-            System.out.println("Cannot compute determinant for non-square matrix");
-            System.exit(-1);
+            term.multiplyInto(scaled, nextTerm).scaleInPlace(1.0 / k);
+            Matrix swap = term;
+            term = nextTerm;
+            nextTerm = swap;
+
+            result.addInPlace(term);
+            if (term.getOneNorm() <= Math.ulp(result.getOneNorm()))
+                break;
         }
 
-        if (getColumns() != 2)
+        Matrix squared = nextTerm;
+        for (int i = 0; i < squarings; ++i)
         {
-            System.out.println("uhhh... 2x2 matrices only");
-            System.exit(-1);
+            result.multiplyInto(result, squared);
+            Matrix swap = result;
+            result = squared;
+            squared = swap;
         }
 
-        return get(0, 0) * get(1, 1) - get(1, 0) * get(0, 1);
+        return result;
+    }
+
+    public double getDeterminant()
+    {
+        if (getColumns() != getRows())
+            throw new IllegalArgumentException("Cannot compute determinant for non-square matrix");
+
+        if (getColumns() == 2)
+            return get(0, 0) * get(1, 1) - get(1, 0) * get(0, 1);
+
+        return new LuDecomposition(this).getDeterminant();
     }
 
+    /**
+     * Throws IllegalArgumentException if the matrix is singular
+     */
     public Matrix invert()
     {
-        if (getColumns() != 2)
+        if (getColumns() != getRows())
+            throw new IllegalArgumentException("Cannot invert non-square matrix");
+
+        if (getColumns() == 2)
         {
-            System.out.println("uhhh... 2x2 matrices only");
-            System.exit(-1);
+            double determinant = getDeterminant();
+            if (determinant == 0.0)
+                throw new IllegalArgumentException("Matrix is singular");
+
+            return new Matrix(new ArrayList<>(Arrays.asList(
+                    new ArrayList<>(Arrays.asList(get(1, 1), -get(0, 1))),
+                    new ArrayList<>(Arrays.asList(-get(1, 0), get(0, 0)))
+            ))).multiply(1 / determinant);
         }
 
-        return new Matrix(new ArrayList<>(Arrays.asList(
-                new ArrayList<>(Arrays.asList(get(1, 1), -get(0, 1))),
-                new ArrayList<>(Arrays.asList(-get(1, 0), get(0, 0)))
-        ))).multiply(1 / getDeterminant());
+        return new LuDecomposition(this).inverse();
+    }
+
+    /**
+     * The x for which this * x = b, for a square matrix and any number of columns in b. Throws
+     * IllegalArgumentException if the matrix is singular.
+     */
+    public Matrix solve(Matrix b)
+    {
+        return new LuDecomposition(this).solve(b);
     }
 
     @Override
     public Matrix clone()
     {
         Matrix clone = new Matrix(getColumns(), getRows());
-
-        for (int column = 0; column < getColumns(); ++column)
-        {
-            for (int row = 0; row < getRows(); ++row)
-            {
-                clone.set(column, row, mValues.get(column).get(row));
-            }
-        }
-
+        System.arraycopy(mValues, 0, clone.mValues, 0, mValues.length);
         return clone;
     }
 
@@ -195,4 +398,21 @@ public class Matrix
 
         return stringBuilder.toString();
     }
+
+    /**
+     * The backing array in column-major order, not a copy
+     */
+    double[] getValues()
+    {
+        return mValues;
+    }
+
+    private void checkSameDimensions(Matrix matrix)
+    {
+        if (getColumns() != matrix.getColumns() || getRows() != matrix.getRows())
+        {
+            throw new IllegalArgumentException("Mismatched dimensions, " + getRows() + "x" + getColumns() + " and "
+                    + matrix.getRows() + "x" + matrix.getColumns());
+        }
+    }
 }
@@ -0,0 +1,169 @@
+package root;
+
+import jdk.jfr.FlightRecorder;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and a step time histogram for the simulation loop, for every run in the JVM together. They're off unless
+ * the JVM is started with -Dpendulum.metrics=true. {@link #ENABLED} is a constant once the class is loaded, so when
+ * it's false the JIT drops every call to record something and the loop runs as if they weren't there.
+ * <p>
+ * {@link #startReporting()} prints them when the JVM exits, and every pendulum.metrics.period milliseconds if that's
+ * set, as text or as JSON with -Dpendulum.metrics.format=json. They're also recorded as a {@link MetricsEvent} once a
+ * second while a flight recording is running.
+ * <p>
+ * Counters can be updated from any thread. Step times go into a histogram per thread that a report adds together
+ * without stopping the threads, so a report taken while runs are going can be slightly behind.
+ */
+public final class Metrics
+{
+    public static final boolean ENABLED = Boolean.getBoolean("pendulum.metrics");
+
+    public enum Counter
+    {
+        DERIVATIVE_EVALUATIONS,
+        INTEGRATOR_STEPS,
+        // Adaptive steps over the tolerance that were tried again smaller, also counted in INTEGRATOR_STEPS
+        REJECTED_STEPS,
+        CONTROLLER_COMPUTATIONS,
+        // Controller periods whose output was clamped to the max torque output, not every integrator stage
+        SATURATIONS,
+        PERTURBATION_ACTIVATIONS,
+        SAMPLES_SAVED,
+        EXPORT_BYTES
+    }
+
+    private static final LongAdder[] COUNTERS = new LongAdder[Counter.values().length];
+    private static final List<LatencyHistogram> STEP_TIMES = new ArrayList<>();
+    private static final ThreadLocal<LatencyHistogram> THREAD_STEP_TIME = ThreadLocal.withInitial(() ->
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        synchronized (STEP_TIMES)
+        {
+            STEP_TIMES.add(histogram);
+        }
+        return histogram;
+    });
+
+    private static boolean sReporting = false;
+
+    static
+    {
+        for (int i = 0; i < COUNTERS.length; ++i)
+            COUNTERS[i] = new LongAdder();
+    }
+
+    private Metrics()
+    {
+    }
+
+    public static void increment(Counter counter)
+    {
+        if (ENABLED)
+            COUNTERS[counter.ordinal()].increment();
+    }
+
+    public static void add(Counter counter, long amount)
+    {
+        if (ENABLED)
+            COUNTERS[counter.ordinal()].add(amount);
+    }
+
+    /**
+     * The time to pass to {@link #recordStepTime(long)} at the end of the step, 0 when metrics are off so the clock
+     * isn't read
+     */
+    public static long startStep()
+    {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    public static void recordStepTime(long startTimeNs)
+    {
+        if (ENABLED)
+            THREAD_STEP_TIME.get().record(System.nanoTime() - startTimeNs);
+    }
+
+    public static long get(Counter counter)
+    {
+        return COUNTERS[counter.ordinal()].sum();
+    }
+
+    /**
+     * Every thread's step times added together
+     */
+    public static LatencyHistogram getStepTime()
+    {
+        LatencyHistogram stepTime = new LatencyHistogram();
+        synchronized (STEP_TIMES)
+        {
+            for (LatencyHistogram histogram : STEP_TIMES)
+                stepTime.add(histogram);
+        }
+        return stepTime;
+    }
+
+    /**
+     * Starts the reports set up by the system properties, if metrics are on. Only the first call does anything.
+     */
+    public static synchronized void startReporting()
+    {
+        if (!ENABLED || sReporting)
+            return;
+
+        sReporting = true;
+        boolean json = "json".equals(System.getProperty("pendulum.metrics.format"));
+        PrintStream out = System.err;
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> out.println(json ? toJson() : toText()),
+                "metrics-shutdown"));
+
+        long periodMs = Long.getLong("pendulum.metrics.period", 0);
+        if (periodMs > 0)
+        {
+            ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable ->
+            {
+                Thread thread = new Thread(runnable, "metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.scheduleAtFixedRate(() -> out.println(json ? toJson() : toText()), periodMs, periodMs,
+                    TimeUnit.MILLISECONDS);
+        }
+
+        FlightRecorder.addPeriodicEvent(MetricsEvent.class, MetricsEvent::emit);
+    }
+
+    public static String toText()
+    {
+        StringBuilder text = new StringBuilder("Metrics:");
+        for (Counter counter : Counter.values())
+            text.append("\n  ").append(counter.name().toLowerCase(Locale.ROOT)).append(' ').append(get(counter));
+
+        return text.append("\n  step_time ").append(getStepTime()).toString();
+    }
+
+    public static String toJson()
+    {
+        StringBuilder json = new StringBuilder("{");
+        for (Counter counter : Counter.values())
+            json.append('"').append(counter.name().toLowerCase(Locale.ROOT)).append("\":").append(get(counter)).append(',');
+
+        LatencyHistogram stepTime = getStepTime();
+        return json.append("\"step_time_ns\":{\"count\":").append(stepTime.getCount())
+                .append(",\"mean\":").append(stepTime.getMean())
+                .append(",\"p50\":").append(stepTime.getValueAtPercentile(50.0))
+                .append(",\"p99\":").append(stepTime.getValueAtPercentile(99.0))
+                .append(",\"p99_9\":").append(stepTime.getValueAtPercentile(99.9))
+                .append(",\"max\":").append(stepTime.getMax())
+                .append("}}").toString();
+    }
+}
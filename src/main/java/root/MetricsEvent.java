@@ -0,0 +1,79 @@
+package root;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A snapshot of {@link Metrics} in a flight recording, the counters are totals since the JVM started
+ */
+@Name("root.Metrics")
+@Label("Simulation Metrics")
+@Category("Inverted Pendulum")
+@Description("Simulation loop counters and step times")
+@Period("1 s")
+@StackTrace(false)
+public class MetricsEvent extends Event
+{
+    @Label("Derivative Evaluations")
+    long derivativeEvaluations;
+
+    @Label("Integrator Steps")
+    long integratorSteps;
+
+    @Label("Rejected Steps")
+    long rejectedSteps;
+
+    @Label("Controller Computations")
+    long controllerComputations;
+
+    @Label("Saturations")
+    long saturations;
+
+    @Label("Perturbation Activations")
+    long perturbationActivations;
+
+    @Label("Samples Saved")
+    long samplesSaved;
+
+    @Label("Export Bytes")
+    @DataAmount
+    long exportBytes;
+
+    @Label("Step Time p50")
+    @Timespan
+    long stepTimeP50;
+
+    @Label("Step Time p99")
+    @Timespan
+    long stepTimeP99;
+
+    @Label("Step Time Max")
+    @Timespan
+    long stepTimeMax;
+
+    static void emit()
+    {
+        MetricsEvent event = new MetricsEvent();
+        event.derivativeEvaluations = Metrics.get(Metrics.Counter.DERIVATIVE_EVALUATIONS);
+        event.integratorSteps = Metrics.get(Metrics.Counter.INTEGRATOR_STEPS);
+        event.rejectedSteps = Metrics.get(Metrics.Counter.REJECTED_STEPS);
+        event.controllerComputations = Metrics.get(Metrics.Counter.CONTROLLER_COMPUTATIONS);
+        event.saturations = Metrics.get(Metrics.Counter.SATURATIONS);
+        event.perturbationActivations = Metrics.get(Metrics.Counter.PERTURBATION_ACTIVATIONS);
+        event.samplesSaved = Metrics.get(Metrics.Counter.SAMPLES_SAVED);
+        event.exportBytes = Metrics.get(Metrics.Counter.EXPORT_BYTES);
+
+        LatencyHistogram stepTime = Metrics.getStepTime();
+        event.stepTimeP50 = stepTime.getValueAtPercentile(50.0);
+        event.stepTimeP99 = stepTime.getValueAtPercentile(99.0);
+        event.stepTimeMax = stepTime.getMax();
+        event.commit();
+    }
+}
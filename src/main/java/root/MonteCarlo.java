@@ -0,0 +1,152 @@
+package root;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs many copies of a config with the plant parameters and initial state drawn at random around their nominal
+ * values, while the controller is still designed for the nominal plant, to see how robust it is. Parameters are
+ * normally distributed with the standard deviations from {@link Constants} unless they're set.
+ * <p>
+ * The runs are split into chunks that each get their own {@link SplittableRandom} split off the seeded one. How the
+ * runs are split depends only on their number, so the same seed gives the same results at any parallelism.
+ */
+public class MonteCarlo
+{
+    // Chunks never get smaller than this, and there are never more than MAX_CHUNKS of them
+    private static final int MIN_CHUNK_SIZE = 16;
+    private static final int MAX_CHUNKS = 256;
+
+    private final SimulationConfig mNominalConfig;
+    private final long mSeed;
+
+    private double mMassUncertainty = Constants.MASS_UNCERTAINTY;
+    private double mLengthUncertainty = Constants.LENGTH_UNCERTAINTY;
+    private double mViscousFrictionUncertainty = Constants.VISCOUS_FRICTION_UNCERTAINTY;
+    private double mInitialThetaUncertainty = Constants.INITIAL_THETA_UNCERTAINTY;
+    private double mInitialThetaDotUncertainty = Constants.INITIAL_THETA_DOT_UNCERTAINTY;
+
+    public MonteCarlo(SimulationConfig nominalConfig, long seed)
+    {
+        mNominalConfig = nominalConfig;
+        mSeed = seed;
+    }
+
+    public MonteCarlo setMassUncertainty(double relativeStdDev)
+    {
+        mMassUncertainty = relativeStdDev;
+        return this;
+    }
+
+    public MonteCarlo setLengthUncertainty(double relativeStdDev)
+    {
+        mLengthUncertainty = relativeStdDev;
+        return this;
+    }
+
+    public MonteCarlo setViscousFrictionUncertainty(double relativeStdDev)
+    {
+        mViscousFrictionUncertainty = relativeStdDev;
+        return this;
+    }
+
+    public MonteCarlo setInitialStateUncertainty(double thetaStdDev, double thetaDotStdDev)
+    {
+        mInitialThetaUncertainty = thetaStdDev;
+        mInitialThetaDotUncertainty = thetaDotStdDev;
+        return this;
+    }
+
+    public EnsembleStatistics run(int runs)
+    {
+        return run(runs, Runtime.getRuntime().availableProcessors());
+    }
+
+    public EnsembleStatistics run(int runs, int parallelism)
+    {
+        if (runs < 1)
+            throw new IllegalArgumentException("Need at least 1 run, got " + runs);
+
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, (runs + MAX_CHUNKS - 1) / MAX_CHUNKS);
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try
+        {
+            return pool.invoke(new MonteCarloTask(0, runs, chunkSize, new SplittableRandom(mSeed)));
+        } finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * A copy of the nominal config with the plant and initial state drawn from random
+     */
+    public SimulationConfig createPerturbedConfig(SplittableRandom random)
+    {
+        // Scale factors are kept positive so a long tail can't make a massless or negative length pendulum
+        double massScale = Math.max(0.05, 1.0 + mMassUncertainty * nextGaussian(random));
+        double lengthScale = Math.max(0.05, 1.0 + mLengthUncertainty * nextGaussian(random));
+        double frictionScale = Math.max(0.0, 1.0 + mViscousFrictionUncertainty * nextGaussian(random));
+        double theta = mNominalConfig.initialTheta + mInitialThetaUncertainty * nextGaussian(random);
+        double thetaDot = mNominalConfig.initialThetaDot + mInitialThetaDotUncertainty * nextGaussian(random);
+
+        return mNominalConfig.toBuilder()
+                .setPendulumMass(mNominalConfig.pendulumMass * massScale)
+                .setPendulumLength(mNominalConfig.pendulumLength * lengthScale)
+                .setViscousFriction(mNominalConfig.viscousFriction * frictionScale)
+                .setInitialState(theta, thetaDot)
+                .setNominal(mNominalConfig)
+                .build();
+    }
+
+    private static double nextGaussian(SplittableRandom random)
+    {
+        // Box-Muller, SplittableRandom doesn't have nextGaussian until Java 17
+        double u1 = 1.0 - random.nextDouble();
+        double u2 = random.nextDouble();
+        return Math.sqrt(-2.0 * Math.log(u1)) * Math.cos(2.0 * Math.PI * u2);
+    }
+
+    private class MonteCarloTask extends RecursiveTask<EnsembleStatistics>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int mStart;
+        private final int mEnd;
+        private final int mChunkSize;
+        private final SplittableRandom mRandom;
+
+        MonteCarloTask(int start, int end, int chunkSize, SplittableRandom random)
+        {
+            mStart = start;
+            mEnd = end;
+            mChunkSize = chunkSize;
+            mRandom = random;
+        }
+
+        @Override
+        protected EnsembleStatistics compute()
+        {
+            if (mEnd - mStart <= mChunkSize)
+            {
+                Simulator simulator = new Simulator();
+                EnsembleStatistics statistics = new EnsembleStatistics(mNominalConfig);
+                for (int run = mStart; run < mEnd; ++run)
+                    statistics.addRun(simulator.stream(createPerturbedConfig(mRandom), statistics));
+                return statistics;
+            }
+
+            // Split before forking so which random each half gets doesn't depend on scheduling
+            int middle = (mStart + mEnd) >>> 1;
+            MonteCarloTask left = new MonteCarloTask(mStart, middle, mChunkSize, mRandom.split());
+            MonteCarloTask right = new MonteCarloTask(middle, mEnd, mChunkSize, mRandom);
+            invokeAll(left, right);
+
+            EnsembleStatistics statistics = left.join();
+            statistics.add(right.join());
+            return statistics;
+        }
+    }
+}
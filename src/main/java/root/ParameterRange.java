@@ -0,0 +1,56 @@
+package root;
+
+/**
+ * count evenly spaced values from start to end, inclusive
+ */
+public class ParameterRange
+{
+    public final double start;
+    public final double end;
+    public final int count;
+
+    public ParameterRange(double start, double end, int count)
+    {
+        if (count < 1)
+            throw new IllegalArgumentException("A range needs at least one value, got " + count);
+
+        this.start = start;
+        this.end = end;
+        this.count = count;
+    }
+
+    public static ParameterRange single(double value)
+    {
+        return new ParameterRange(value, value, 1);
+    }
+
+    /**
+     * Parses either a single value or start:end:count
+     */
+    public static ParameterRange parse(String range)
+    {
+        String[] parts = range.split(":");
+
+        try
+        {
+            if (parts.length == 1)
+                return single(Double.parseDouble(parts[0]));
+
+            if (parts.length == 3)
+                return new ParameterRange(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]), Integer.parseInt(parts[2]));
+        } catch (NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Invalid range \"" + range + "\"", e);
+        }
+
+        throw new IllegalArgumentException("Invalid range \"" + range + "\", expected value or start:end:count");
+    }
+
+    public double getValue(int index)
+    {
+        if (count == 1)
+            return start;
+
+        return start + (end - start) * index / (count - 1);
+    }
+}
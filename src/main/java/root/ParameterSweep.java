@@ -0,0 +1,281 @@
+package root;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs every combination of a grid of gains, eigenvalues, LQR weights, torque limits and perturbation sets, in parallel. Only a
+ * {@link RunSummary} is kept for each point, the samples are never stored.
+ */
+public class ParameterSweep
+{
+    public enum Parameter
+    {
+        EIGENVALUE_1
+                {
+                    @Override
+                    void apply(SimulationConfig.Builder builder, double value)
+                    {
+                        builder.setEigenvalue1(value);
+                    }
+                },
+        EIGENVALUE_2
+                {
+                    @Override
+                    void apply(SimulationConfig.Builder builder, double value)
+                    {
+                        builder.setEigenvalue2(value);
+                    }
+                },
+        KP
+                {
+                    @Override
+                    void apply(SimulationConfig.Builder builder, double value)
+                    {
+                        builder.setKp(value);
+                    }
+                },
+        KI
+                {
+                    @Override
+                    void apply(SimulationConfig.Builder builder, double value)
+                    {
+                        builder.setKi(value);
+                    }
+                },
+        KD
+                {
+                    @Override
+                    void apply(SimulationConfig.Builder builder, double value)
+                    {
+                        builder.setKd(value);
+                    }
+                },
+        LQR_THETA_WEIGHT
+                {
+                    @Override
+                    void apply(SimulationConfig.Builder builder, double value)
+                    {
+                        builder.setLqrThetaWeight(value);
+                    }
+                },
+        LQR_THETA_DOT_WEIGHT
+                {
+                    @Override
+                    void apply(SimulationConfig.Builder builder, double value)
+                    {
+                        builder.setLqrThetaDotWeight(value);
+                    }
+                },
+        LQR_TORQUE_WEIGHT
+                {
+                    @Override
+                    void apply(SimulationConfig.Builder builder, double value)
+                    {
+                        builder.setLqrTorqueWeight(value);
+                    }
+                },
+        MAX_TORQUE_OUTPUT
+                {
+                    @Override
+                    void apply(SimulationConfig.Builder builder, double value)
+                    {
+                        builder.setMaxTorqueOutput(value);
+                    }
+                };
+
+        abstract void apply(SimulationConfig.Builder builder, double value);
+    }
+
+    private final SimulationConfig mBaseConfig;
+    private final EnumMap<Parameter, ParameterRange> mRanges = new EnumMap<>(Parameter.class);
+    private final List<List<Perturbation>> mPerturbationSets = new ArrayList<>();
+
+    public ParameterSweep(SimulationConfig baseConfig)
+    {
+        mBaseConfig = baseConfig;
+    }
+
+    public ParameterSweep setRange(Parameter parameter, ParameterRange range)
+    {
+        mRanges.put(parameter, range);
+        return this;
+    }
+
+    /**
+     * Sets a range from "parameter=start:end:count", for example "kd=2:8:4"
+     */
+    public ParameterSweep setRange(String parameterAndRange)
+    {
+        String[] parts = parameterAndRange.split("=", 2);
+        if (parts.length != 2)
+            throw new IllegalArgumentException("Expected parameter=start:end:count, got \"" + parameterAndRange + "\"");
+
+        return setRange(parseParameter(parts[0].trim()), ParameterRange.parse(parts[1]));
+    }
+
+    private static Parameter parseParameter(String name)
+    {
+        try
+        {
+            return Parameter.valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e)
+        {
+            StringBuilder names = new StringBuilder();
+            for (Parameter parameter : Parameter.values())
+            {
+                if (names.length() > 0)
+                    names.append(", ");
+                names.append(parameter.name().toLowerCase(Locale.ROOT));
+            }
+
+            throw new IllegalArgumentException("Unknown sweep parameter \"" + name + "\", expected one of " + names);
+        }
+    }
+
+    /**
+     * Every point of the grid is run once per perturbation set. With no sets added the base config's perturbations
+     * are used.
+     */
+    public ParameterSweep addPerturbationSet(List<Perturbation> perturbations)
+    {
+        mPerturbationSets.add(perturbations);
+        return this;
+    }
+
+    public int getPointCount()
+    {
+        long pointCount = Math.max(1, mPerturbationSets.size());
+        for (ParameterRange range : mRanges.values())
+            pointCount *= range.count;
+
+        if (pointCount > Integer.MAX_VALUE)
+            throw new IllegalStateException("Sweep has too many points: " + pointCount);
+
+        return (int) pointCount;
+    }
+
+    public SimulationConfig getConfig(int point)
+    {
+        SimulationConfig.Builder builder = mBaseConfig.toBuilder();
+
+        // The point index is a mixed radix number with one digit per range, and the perturbation set as the last digit
+        int remainder = point;
+        for (Map.Entry<Parameter, ParameterRange> entry : mRanges.entrySet())
+        {
+            ParameterRange range = entry.getValue();
+            entry.getKey().apply(builder, range.getValue(remainder % range.count));
+            remainder /= range.count;
+        }
+
+        if (!mPerturbationSets.isEmpty())
+            builder.setPerturbations(mPerturbationSets.get(remainder));
+
+        return builder.build();
+    }
+
+    public int getPerturbationSetIndex(int point)
+    {
+        int remainder = point;
+        for (ParameterRange range : mRanges.values())
+            remainder /= range.count;
+        return remainder;
+    }
+
+    public RunSummary[] run()
+    {
+        return run(Runtime.getRuntime().availableProcessors());
+    }
+
+    public RunSummary[] run(int parallelism)
+    {
+        RunSummary[] summaries = new RunSummary[getPointCount()];
+
+        // Enough chunks for the pool to balance load between workers, without creating a task per point
+        int chunkSize = Math.max(1, summaries.length / (parallelism * 16));
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try
+        {
+            pool.invoke(new SweepTask(summaries, 0, summaries.length, chunkSize));
+        } finally
+        {
+            pool.shutdown();
+        }
+
+        return summaries;
+    }
+
+    public void saveToCsv(String fileName, RunSummary[] summaries) throws IOException
+    {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName)))
+        {
+            writer.append("eigenvalue1,eigenvalue2,kp,ki,kd,lqrThetaWeight,lqrThetaDotWeight,lqrTorqueWeight,")
+                    .append("maxTorqueOutput,perturbationSet,settlingTime,maxAbsTheta,saturationFraction,fell\n");
+
+            for (int point = 0; point < summaries.length; ++point)
+            {
+                SimulationConfig config = getConfig(point);
+                RunSummary summary = summaries[point];
+
+                writer.append(String.valueOf(config.eigenvalue1)).append(',')
+                        .append(String.valueOf(config.eigenvalue2)).append(',')
+                        .append(String.valueOf(config.kp)).append(',')
+                        .append(String.valueOf(config.ki)).append(',')
+                        .append(String.valueOf(config.kd)).append(',')
+                        .append(String.valueOf(config.lqrThetaWeight)).append(',')
+                        .append(String.valueOf(config.lqrThetaDotWeight)).append(',')
+                        .append(String.valueOf(config.lqrTorqueWeight)).append(',')
+                        .append(String.valueOf(config.maxTorqueOutput)).append(',')
+                        .append(String.valueOf(getPerturbationSetIndex(point))).append(',')
+                        .append(String.valueOf(summary.getSettlingTime())).append(',')
+                        .append(String.valueOf(summary.getMaxAbsTheta())).append(',')
+                        .append(String.valueOf(summary.getSaturationFraction())).append(',')
+                        .append(String.valueOf(summary.fell())).append('\n');
+            }
+        }
+    }
+
+    private class SweepTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final RunSummary[] mSummaries;
+        private final int mStart;
+        private final int mEnd;
+        private final int mChunkSize;
+
+        SweepTask(RunSummary[] summaries, int start, int end, int chunkSize)
+        {
+            mSummaries = summaries;
+            mStart = start;
+            mEnd = end;
+            mChunkSize = chunkSize;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (mEnd - mStart <= mChunkSize)
+            {
+                // Runs are independent, so each chunk only needs its own simulator and nothing is shared
+                Simulator simulator = new Simulator();
+                for (int point = mStart; point < mEnd; ++point)
+                    mSummaries[point] = simulator.summarize(getConfig(point));
+                return;
+            }
+
+            int middle = (mStart + mEnd) >>> 1;
+            invokeAll(new SweepTask(mSummaries, mStart, middle, mChunkSize),
+                    new SweepTask(mSummaries, middle, mEnd, mChunkSize));
+        }
+    }
+}
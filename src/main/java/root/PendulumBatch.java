@@ -0,0 +1,256 @@
+package root;
+
+import java.util.Arrays;
+
+/**
+ * Many independent closed loop pendulums stepped together, with every state variable and parameter in its own array
+ * indexed by pendulum. The linearized model is stepped in plain arithmetic loops over the arrays that the JIT can
+ * vectorize, the nonlinear one is dominated by sin, which it can't, so it's stepped in a single pass. It gives the
+ * same numbers as a fixed step {@link Simulator} run of the same config without perturbations.
+ * <p>
+ * Every pendulum runs the feedback law u = -(kTheta * theta + integral + kThetaDot * thetaDot) clamped to its max
+ * torque output, which covers PID with kTheta = kp and kThetaDot = kd, and eigenvalue placement and LQR with the
+ * integral left at zero. PID with anti-windup isn't supported. All pendulums in a batch have to be either linearized or
+ * not.
+ */
+public class PendulumBatch
+{
+    private final boolean mLinearized;
+    private int mSize = 0;
+
+    private double[] mTheta;
+    private double[] mThetaDot;
+    private double[] mIntegral;
+    private double[] mTorque;
+
+    private double[] mGravityTorque;
+    private double[] mInertiaTerm;
+    private double[] mViscousFriction;
+    private double[] mLinearThetaCoefficient;
+    private double[] mLinearTorqueCoefficient;
+
+    private double[] mKTheta;
+    private double[] mKThetaDot;
+    private double[] mKi;
+    private double[] mMaxTorqueOutput;
+
+    public PendulumBatch(boolean linearized, int initialCapacity)
+    {
+        mLinearized = linearized;
+        allocate(Math.max(1, initialCapacity));
+    }
+
+    /**
+     * Adds a pendulum with the plant, controller and initial state of config and returns its index
+     */
+    public int add(SimulationConfig config)
+    {
+        if (config.linearized != mLinearized)
+            throw new IllegalArgumentException("Batch is " + (mLinearized ? "" : "not ") + "linearized, config isn't");
+
+        if (config.usePid && config.useAntiWindup && !(config.useEigenvaluePlacement || config.useLqr))
+            throw new IllegalArgumentException("Batch doesn't support anti-windup");
+
+        if (mSize == mTheta.length)
+            allocate(mSize * 2);
+
+        PendulumModel pendulumModel = config.createPendulumModel();
+        int i = mSize++;
+
+        mTheta[i] = config.initialTheta;
+        mThetaDot[i] = config.initialThetaDot;
+        mIntegral[i] = 0.0;
+        mTorque[i] = 0.0;
+
+        mGravityTorque[i] = pendulumModel.getGravityTorque();
+        mInertiaTerm[i] = pendulumModel.getInertiaTerm();
+        mViscousFriction[i] = pendulumModel.getViscousFriction();
+        mLinearThetaCoefficient[i] = pendulumModel.getLinearThetaCoefficient();
+        mLinearTorqueCoefficient[i] = pendulumModel.getLinearTorqueCoefficient();
+
+        // State feedback overrides PID when both are on, same as in the simulator
+        if (config.useEigenvaluePlacement || config.useLqr)
+        {
+            Matrix kMatrix = StateFeedbackController.getKMatrix(config, config.createControllerModel());
+            mKTheta[i] = kMatrix.get(0, 0);
+            mKThetaDot[i] = kMatrix.get(1, 0);
+            mKi[i] = 0.0;
+        } else if (config.usePid)
+        {
+            mKTheta[i] = config.kp;
+            mKThetaDot[i] = config.kd;
+            mKi[i] = config.ki;
+        } else
+        {
+            mKTheta[i] = 0.0;
+            mKThetaDot[i] = 0.0;
+            mKi[i] = 0.0;
+        }
+        mMaxTorqueOutput[i] = config.maxTorqueOutput;
+
+        return i;
+    }
+
+    public int size()
+    {
+        return mSize;
+    }
+
+    public boolean isLinearized()
+    {
+        return mLinearized;
+    }
+
+    public double getTheta(int pendulum)
+    {
+        return mTheta[checkIndex(pendulum)];
+    }
+
+    public double getThetaDot(int pendulum)
+    {
+        return mThetaDot[checkIndex(pendulum)];
+    }
+
+    /**
+     * The torque the controller held over the last step
+     */
+    public double getTorque(int pendulum)
+    {
+        return mTorque[checkIndex(pendulum)];
+    }
+
+    /**
+     * Runs every controller once and advances every pendulum by dt with RK4, holding the torque over the step
+     */
+    public void step(double dt)
+    {
+        if (mLinearized)
+            stepLinearized(dt);
+        else
+            stepNonlinear(dt);
+    }
+
+    public void step(double dt, int steps)
+    {
+        for (int i = 0; i < steps; ++i)
+            step(dt);
+    }
+
+    private void stepLinearized(double dt)
+    {
+        double halfDt = dt / 2.0;
+        double sixthDt = (1.0 / 6.0) * dt;
+
+        // Locals so the JIT doesn't have to assume the fields can change inside the loops
+        double[] theta = mTheta, thetaDot = mThetaDot, integral = mIntegral, torque = mTorque;
+        double[] kTheta = mKTheta, kThetaDot = mKThetaDot, ki = mKi, maxTorqueOutput = mMaxTorqueOutput;
+        double[] a = mLinearThetaCoefficient, b = mLinearTorqueCoefficient;
+        int size = mSize;
+
+        // Separate passes with nothing but arithmetic in them, since the JIT won't vectorize a loop with a branch
+        for (int i = 0; i < size; ++i)
+        {
+            double newIntegral = ki[i] * theta[i] * dt + integral[i];
+            integral[i] = newIntegral;
+            torque[i] = -(kTheta[i] * theta[i] + newIntegral + kThetaDot[i] * thetaDot[i]);
+        }
+
+        for (int i = 0; i < size; ++i)
+            torque[i] = Math.max(-maxTorqueOutput[i], Math.min(maxTorqueOutput[i], torque[i]));
+
+        for (int i = 0; i < size; ++i)
+        {
+            double x = theta[i];
+            double v = thetaDot[i];
+            double bu = b[i] * torque[i];
+
+            double k1Theta = v;
+            double k1ThetaDot = a[i] * x + bu;
+            double k2Theta = v + k1ThetaDot * halfDt;
+            double k2ThetaDot = a[i] * (x + k1Theta * halfDt) + bu;
+            double k3Theta = v + k2ThetaDot * halfDt;
+            double k3ThetaDot = a[i] * (x + k2Theta * halfDt) + bu;
+            double k4Theta = v + k3ThetaDot * dt;
+            double k4ThetaDot = a[i] * (x + k3Theta * dt) + bu;
+
+            theta[i] = x + (k1Theta + k2Theta * 2 + k3Theta * 2 + k4Theta) * sixthDt;
+            thetaDot[i] = v + (k1ThetaDot + k2ThetaDot * 2 + k3ThetaDot * 2 + k4ThetaDot) * sixthDt;
+        }
+    }
+
+    private void stepNonlinear(double dt)
+    {
+        double halfDt = dt / 2.0;
+        double sixthDt = (1.0 / 6.0) * dt;
+
+        double[] theta = mTheta, thetaDot = mThetaDot, integral = mIntegral, torque = mTorque;
+        double[] kTheta = mKTheta, kThetaDot = mKThetaDot, ki = mKi, maxTorqueOutput = mMaxTorqueOutput;
+        double[] gravityTorque = mGravityTorque, inertiaTerm = mInertiaTerm, viscousFriction = mViscousFriction;
+
+        for (int i = 0; i < mSize; ++i)
+        {
+            double x = PendulumModel.getBoundedAngle(theta[i]);
+            double v = thetaDot[i];
+
+            double newIntegral = ki[i] * x * dt + integral[i];
+            integral[i] = newIntegral;
+            double u = -(kTheta[i] * x + newIntegral + kThetaDot[i] * v);
+            u = clamp(u, maxTorqueOutput[i]);
+            torque[i] = u;
+
+            // Same expression as PendulumModel.getThetaDotDot so the results match it exactly
+            double mgl = gravityTorque[i], inertia = inertiaTerm[i], friction = viscousFriction[i];
+            double k1Theta = v;
+            double k1ThetaDot = 12 * (mgl * Math.sin(x) + 2 * u - 2 * v * friction) / inertia;
+            double k2Theta = v + k1ThetaDot * halfDt;
+            double k2ThetaDot = 12 * (mgl * Math.sin(x + k1Theta * halfDt) + 2 * u - 2 * k2Theta * friction) / inertia;
+            double k3Theta = v + k2ThetaDot * halfDt;
+            double k3ThetaDot = 12 * (mgl * Math.sin(x + k2Theta * halfDt) + 2 * u - 2 * k3Theta * friction) / inertia;
+            double k4Theta = v + k3ThetaDot * dt;
+            double k4ThetaDot = 12 * (mgl * Math.sin(x + k3Theta * dt) + 2 * u - 2 * k4Theta * friction) / inertia;
+
+            theta[i] = x + (k1Theta + k2Theta * 2 + k3Theta * 2 + k4Theta) * sixthDt;
+            thetaDot[i] = v + (k1ThetaDot + k2ThetaDot * 2 + k3ThetaDot * 2 + k4ThetaDot) * sixthDt;
+        }
+    }
+
+    private static double clamp(double torque, double maxTorqueOutput)
+    {
+        // Plain comparisons rather than Math.min and max, which check for NaN and -0.0 and are much slower
+        if (torque > maxTorqueOutput)
+            return maxTorqueOutput;
+        if (torque < -maxTorqueOutput)
+            return -maxTorqueOutput;
+        return torque;
+    }
+
+    private int checkIndex(int pendulum)
+    {
+        if (pendulum < 0 || pendulum >= mSize)
+            throw new IndexOutOfBoundsException("Pendulum " + pendulum + " is not in the batch of " + mSize);
+
+        return pendulum;
+    }
+
+    private void allocate(int capacity)
+    {
+        mTheta = grow(mTheta, capacity);
+        mThetaDot = grow(mThetaDot, capacity);
+        mIntegral = grow(mIntegral, capacity);
+        mTorque = grow(mTorque, capacity);
+        mGravityTorque = grow(mGravityTorque, capacity);
+        mInertiaTerm = grow(mInertiaTerm, capacity);
+        mViscousFriction = grow(mViscousFriction, capacity);
+        mLinearThetaCoefficient = grow(mLinearThetaCoefficient, capacity);
+        mLinearTorqueCoefficient = grow(mLinearTorqueCoefficient, capacity);
+        mKTheta = grow(mKTheta, capacity);
+        mKThetaDot = grow(mKThetaDot, capacity);
+        mKi = grow(mKi, capacity);
+        mMaxTorqueOutput = grow(mMaxTorqueOutput, capacity);
+    }
+
+    private static double[] grow(double[] array, int capacity)
+    {
+        return array == null ? new double[capacity] : Arrays.copyOf(array, capacity);
+    }
+}
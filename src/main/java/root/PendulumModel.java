@@ -0,0 +1,197 @@
+package root;
+
+/**
+ * The pendulum plant specialized to its two state variables, theta and thetaDot. Everything that doesn't depend on the
+ * state is computed once in the constructor so that a step is only a handful of multiplications and one sin.
+ */
+public class PendulumModel
+{
+    private final boolean mLinearized;
+
+    private final double mWidth;
+    private final double mLength;
+    private final double mMass;
+    private final double mViscousFriction;
+    private final double mGravity;
+
+    // m * g * l
+    private final double mGravityTorque;
+    // w^2 + 4 * l^2, every term of the equation of motion is divided by this
+    private final double mInertiaTerm;
+    // The bottom row of the A and B matrices of the linearized model
+    private final double mLinearThetaCoefficient;
+    private final double mLinearTorqueCoefficient;
+
+    private double mTheta;
+    private double mThetaDot;
+
+    public PendulumModel(double width, double length, double mass, double viscousFriction, double gravity, boolean linearized)
+    {
+        mLinearized = linearized;
+        mWidth = width;
+        mLength = length;
+        mMass = mass;
+        mViscousFriction = viscousFriction;
+        mGravity = gravity;
+
+        mGravityTorque = mass * gravity * length;
+        mInertiaTerm = Math.pow(width, 2) + 4 * Math.pow(length, 2);
+        mLinearThetaCoefficient = (12 * mass * gravity * length) / (Math.pow(width, 2) + 4 * Math.pow(length, 2));
+        mLinearTorqueCoefficient = 24.0 / (Math.pow(width, 2) + 4.0 * Math.pow(length, 2));
+    }
+
+    public double getTheta()
+    {
+        return mTheta;
+    }
+
+    public double getThetaDot()
+    {
+        return mThetaDot;
+    }
+
+    public void setState(double theta, double thetaDot)
+    {
+        mTheta = theta;
+        mThetaDot = thetaDot;
+    }
+
+    public boolean isLinearized()
+    {
+        return mLinearized;
+    }
+
+    double getGravityTorque()
+    {
+        return mGravityTorque;
+    }
+
+    double getInertiaTerm()
+    {
+        return mInertiaTerm;
+    }
+
+    double getViscousFriction()
+    {
+        return mViscousFriction;
+    }
+
+    double getLinearThetaCoefficient()
+    {
+        return mLinearThetaCoefficient;
+    }
+
+    double getLinearTorqueCoefficient()
+    {
+        return mLinearTorqueCoefficient;
+    }
+
+    /**
+     * Wraps theta back into [-pi, pi], the linearized model is left alone since it's only valid near zero anyway
+     */
+    public void boundTheta()
+    {
+        if (!mLinearized)
+            mTheta = getBoundedAngle(mTheta);
+    }
+
+    public double getThetaDotDot(double theta, double thetaDot, double inputTorque)
+    {
+        if (mLinearized)
+            return mLinearThetaCoefficient * theta + mLinearTorqueCoefficient * inputTorque;
+
+        return 12 * (mGravityTorque * Math.sin(theta)
+                + 2 * inputTorque
+                - 2 * thetaDot * mViscousFriction)
+                / mInertiaTerm;
+    }
+
+    /**
+     * Advances the state by dt seconds using RK4 with the input torque held constant over the step
+     */
+    public void step(double inputTorque, double dt)
+    {
+        double halfDt = dt / 2.0;
+
+        // The derivative of theta is thetaDot, so the first component of each k is the thetaDot it was evaluated at
+        double k1Theta = mThetaDot;
+        double k1ThetaDot = getThetaDotDot(mTheta, mThetaDot, inputTorque);
+
+        double k2Theta = mThetaDot + k1ThetaDot * halfDt;
+        double k2ThetaDot = getThetaDotDot(mTheta + k1Theta * halfDt, k2Theta, inputTorque);
+
+        double k3Theta = mThetaDot + k2ThetaDot * halfDt;
+        double k3ThetaDot = getThetaDotDot(mTheta + k2Theta * halfDt, k3Theta, inputTorque);
+
+        double k4Theta = mThetaDot + k3ThetaDot * dt;
+        double k4ThetaDot = getThetaDotDot(mTheta + k3Theta * dt, k4Theta, inputTorque);
+
+        double sixthDt = (1.0 / 6.0) * dt;
+        mTheta += (k1Theta + k2Theta * 2 + k3Theta * 2 + k4Theta) * sixthDt;
+        mThetaDot += (k1ThetaDot + k2ThetaDot * 2 + k3ThetaDot * 2 + k4ThetaDot) * sixthDt;
+    }
+
+    /**
+     * The gains of the u = -Kx feedback law that places the closed loop eigenvalues of the linearized model
+     */
+    public Matrix getEigenvaluePlacementKMatrix(double eigenvalue1, double eigenvalue2)
+    {
+        Matrix kMatrix = new Matrix(2, 1);
+        kMatrix.set(0, 0, ((eigenvalue1 * eigenvalue2) * (Math.pow(mWidth, 2) + 4.0 * Math.pow(mLength, 2))
+                + 12.0 * mMass * mGravity * mLength)
+                / 24.0);
+        kMatrix.set(1, 0, ((-eigenvalue1 - eigenvalue2) * (Math.pow(mWidth, 2) + 4.0 * Math.pow(mLength, 2))
+                - mViscousFriction)
+                / 24.0);
+        return kMatrix;
+    }
+
+    /**
+     * The gains of the u = -Kx feedback law that minimizes the integral of the weighted squares of the state and torque
+     * for the linearized model, see {@link Lqr}
+     */
+    public Matrix getLqrKMatrix(double thetaWeight, double thetaDotWeight, double torqueWeight)
+    {
+        Matrix qMatrix = new Matrix(2, 2);
+        qMatrix.set(0, 0, thetaWeight);
+        qMatrix.set(1, 1, thetaDotWeight);
+
+        Matrix rMatrix = new Matrix(1, 1);
+        rMatrix.set(0, 0, torqueWeight);
+
+        return Lqr.getKMatrix(getAMatrix(), getBMatrix(), qMatrix, rMatrix);
+    }
+
+    public Matrix getAMatrix()
+    {
+        Matrix aMatrix = new Matrix(2, 2);
+        aMatrix.set(0, 1, mLinearThetaCoefficient);
+        aMatrix.set(1, 0, 1.0);
+        return aMatrix;
+    }
+
+    public Matrix getBMatrix()
+    {
+        Matrix bMatrix = new Matrix(1, 2);
+        bMatrix.set(0, 1, mLinearTorqueCoefficient);
+        return bMatrix;
+    }
+
+    /**
+     * The same angle in [-pi, pi]. Bounded every step, theta is never more than a step past the bound, which only takes
+     * one addition to bring back.
+     */
+    public static double getBoundedAngle(double angle)
+    {
+        if (angle >= -Math.PI && angle <= Math.PI)
+            return angle;
+
+        if (angle > Math.PI && angle <= 3 * Math.PI)
+            return angle - 2 * Math.PI;
+        if (angle < -Math.PI && angle >= -3 * Math.PI)
+            return angle + 2 * Math.PI;
+
+        // Anything further out, exactly and without dividing into an int that can overflow
+        return Math.IEEEremainder(angle, 2 * Math.PI);
+    }
+}
@@ -0,0 +1,53 @@
+package root;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The same perturbation repeated every period, starting at startTime and ending before endTime. Times are in
+ * nanoseconds like {@link Perturbation}.
+ */
+public class PeriodicPerturbationGenerator implements PerturbationGenerator
+{
+    private final double mStartTime;
+    private final double mEndTime;
+    private final double mPeriod;
+    private final double mForce;
+    private final double mDuration;
+
+    public PeriodicPerturbationGenerator(double startTime, double endTime, double period, double force, double duration)
+    {
+        if (period <= 0)
+            throw new IllegalArgumentException("Period must be positive, got " + period);
+
+        mStartTime = startTime;
+        mEndTime = endTime;
+        mPeriod = period;
+        mForce = force;
+        mDuration = duration;
+    }
+
+    @Override
+    public Iterator<Perturbation> iterator()
+    {
+        return new Iterator<Perturbation>()
+        {
+            private long mIndex = 0;
+
+            @Override
+            public boolean hasNext()
+            {
+                return mStartTime + mIndex * mPeriod < mEndTime;
+            }
+
+            @Override
+            public Perturbation next()
+            {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                return new Perturbation(mStartTime + mIndex++ * mPeriod, mForce, mDuration);
+            }
+        };
+    }
+}
@@ -0,0 +1,9 @@
+package root;
+
+/**
+ * Produces perturbations lazily instead of listing them all up front. Each iterator starts over from the beginning and
+ * must return perturbations in order of start time, so one generator can be shared by runs on different threads.
+ */
+public interface PerturbationGenerator extends Iterable<Perturbation>
+{
+}
@@ -0,0 +1,218 @@
+package root;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Tracks which perturbations are active as a run moves forward in time. Perturbations are sorted by start time and
+ * only the ones that have started and not yet ended are looked at, so the cost of a step depends on how many are
+ * active rather than how many there are in total. A perturbation is active from its time to its time + duration
+ * inclusive. Times are in nanoseconds and must never go backwards between {@link #reset()}s.
+ */
+public class PerturbationSchedule
+{
+    private final Perturbation[] mPerturbations;
+    private final List<PerturbationGenerator> mGenerators;
+
+    // The next perturbation that hasn't started yet, from the sorted list and from each generator
+    private int mNextPerturbation;
+    private final List<Iterator<Perturbation>> mGeneratorIterators = new ArrayList<>();
+    private final Perturbation[] mNextGenerated;
+    private double mNextStartTime;
+
+    // Active perturbations in the order they started
+    private double[] mActiveEnd = new double[8];
+    private double[] mActiveForce = new double[8];
+    private int mActiveCount;
+    private double mEarliestActiveEnd;
+
+    public PerturbationSchedule(List<Perturbation> perturbations, List<PerturbationGenerator> generators)
+    {
+        mPerturbations = perturbations.toArray(new Perturbation[0]);
+        // Stable, so perturbations starting at the same time keep their order from the list
+        Arrays.sort(mPerturbations, Comparator.comparingDouble(perturbation -> perturbation.time));
+
+        mGenerators = generators;
+        mNextGenerated = new Perturbation[generators.size()];
+
+        reset();
+    }
+
+    public static PerturbationSchedule fromConfig(SimulationConfig config)
+    {
+        if (!config.includePerturbations)
+            return new PerturbationSchedule(new ArrayList<>(), new ArrayList<>());
+
+        return new PerturbationSchedule(config.perturbations, config.perturbationGenerators);
+    }
+
+    /**
+     * Goes back to before the first perturbation, generators start over from their beginning
+     */
+    public void reset()
+    {
+        mNextPerturbation = 0;
+
+        mGeneratorIterators.clear();
+        for (int i = 0; i < mGenerators.size(); ++i)
+        {
+            Iterator<Perturbation> iterator = mGenerators.get(i).iterator();
+            mGeneratorIterators.add(iterator);
+            mNextGenerated[i] = iterator.hasNext() ? iterator.next() : null;
+        }
+
+        mNextStartTime = getNextStartTime();
+
+        mActiveCount = 0;
+        mEarliestActiveEnd = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Moves to time and returns inputTorque plus the force of every perturbation active at that time
+     */
+    public double addActiveForces(double time, double inputTorque)
+    {
+        advanceTo(time);
+
+        for (int i = 0; i < mActiveCount; ++i)
+            inputTorque += mActiveForce[i];
+
+        return inputTorque;
+    }
+
+    /**
+     * Moves to time and returns the total force of the perturbations that stay active for some time after it, which is
+     * constant until {@link #getNextEventTime(double)}
+     */
+    public double getForceAfter(double time)
+    {
+        advanceTo(time);
+
+        double force = 0.0;
+        for (int i = 0; i < mActiveCount; ++i)
+        {
+            if (mActiveEnd[i] > time)
+                force += mActiveForce[i];
+        }
+
+        return force;
+    }
+
+    /**
+     * The first time after the given one where a perturbation starts or ends, or infinity if there are none left
+     */
+    public double getNextEventTime(double time)
+    {
+        advanceTo(time);
+
+        double nextEventTime = mNextStartTime;
+        for (int i = 0; i < mActiveCount; ++i)
+        {
+            if (mActiveEnd[i] > time && mActiveEnd[i] < nextEventTime)
+                nextEventTime = mActiveEnd[i];
+        }
+
+        return nextEventTime;
+    }
+
+    public int getActiveCount()
+    {
+        return mActiveCount;
+    }
+
+    private void advanceTo(double time)
+    {
+        if (mEarliestActiveEnd < time)
+            removeEnded(time);
+
+        while (mNextStartTime <= time)
+        {
+            Perturbation perturbation = takeNextStarted();
+            mNextStartTime = getNextStartTime();
+
+            // Something short enough to start and end between two calls is skipped over, just like a step missing it
+            double end = perturbation.time + perturbation.duration;
+            if (end >= time)
+                activate(end, perturbation.force);
+        }
+    }
+
+    private double getNextStartTime()
+    {
+        double nextStartTime = mNextPerturbation < mPerturbations.length
+                ? mPerturbations[mNextPerturbation].time
+                : Double.POSITIVE_INFINITY;
+
+        for (Perturbation nextGenerated : mNextGenerated)
+        {
+            if (nextGenerated != null && nextGenerated.time < nextStartTime)
+                nextStartTime = nextGenerated.time;
+        }
+
+        return nextStartTime;
+    }
+
+    private Perturbation takeNextStarted()
+    {
+        // The sorted list wins ties so that it keeps its order relative to generated perturbations
+        int source = -1;
+        double nextStartTime = mNextPerturbation < mPerturbations.length
+                ? mPerturbations[mNextPerturbation].time
+                : Double.POSITIVE_INFINITY;
+
+        for (int i = 0; i < mNextGenerated.length; ++i)
+        {
+            if (mNextGenerated[i] != null && mNextGenerated[i].time < nextStartTime)
+            {
+                nextStartTime = mNextGenerated[i].time;
+                source = i;
+            }
+        }
+
+        if (source == -1)
+            return mPerturbations[mNextPerturbation++];
+
+        Perturbation perturbation = mNextGenerated[source];
+        Iterator<Perturbation> iterator = mGeneratorIterators.get(source);
+        mNextGenerated[source] = iterator.hasNext() ? iterator.next() : null;
+        return perturbation;
+    }
+
+    private void activate(double end, double force)
+    {
+        if (mActiveCount == mActiveEnd.length)
+        {
+            mActiveEnd = Arrays.copyOf(mActiveEnd, mActiveCount * 2);
+            mActiveForce = Arrays.copyOf(mActiveForce, mActiveCount * 2);
+        }
+
+        mActiveEnd[mActiveCount] = end;
+        mActiveForce[mActiveCount] = force;
+        ++mActiveCount;
+
+        mEarliestActiveEnd = Math.min(mEarliestActiveEnd, end);
+
+        Metrics.increment(Metrics.Counter.PERTURBATION_ACTIVATIONS);
+    }
+
+    private void removeEnded(double time)
+    {
+        // Compact rather than swap with the last one so the forces are always summed in the order they started
+        int kept = 0;
+        mEarliestActiveEnd = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < mActiveCount; ++i)
+        {
+            if (mActiveEnd[i] >= time)
+            {
+                mActiveEnd[kept] = mActiveEnd[i];
+                mActiveForce[kept] = mActiveForce[i];
+                mEarliestActiveEnd = Math.min(mEarliestActiveEnd, mActiveEnd[i]);
+                ++kept;
+            }
+        }
+        mActiveCount = kept;
+    }
+}
@@ -0,0 +1,78 @@
+package root;
+
+/**
+ * u = -(kp * theta + integral of ki * theta + kd * thetaDot), the integral a rectangle per controller period
+ */
+public class PidController implements Controller
+{
+    private final double mKp;
+    private final double mKi;
+    private final double mKd;
+
+    private double mIntegral = 0.0;
+
+    public PidController(double kp, double ki, double kd)
+    {
+        mKp = kp;
+        mKi = ki;
+        mKd = kd;
+    }
+
+    @Override
+    public double getTorque(double theta, double thetaDot)
+    {
+        double P = mKp * theta;
+        double I = mIntegral;
+        double D = mKd * thetaDot;
+
+        return -(P + I + D);
+    }
+
+    @Override
+    public void advance(double theta, double thetaDot, double dt)
+    {
+        mIntegral = getIntegralIncrement(theta, dt) + mIntegral;
+    }
+
+    /**
+     * How much {@link #advance} would add to the integral
+     */
+    public double getIntegralIncrement(double theta, double dt)
+    {
+        return mKi * theta * dt;
+    }
+
+    public double getIntegral()
+    {
+        return mIntegral;
+    }
+
+    public void setIntegral(double integral)
+    {
+        mIntegral = integral;
+    }
+
+    @Override
+    public void reset()
+    {
+        mIntegral = 0.0;
+    }
+
+    @Override
+    public int getStateSize()
+    {
+        return 1;
+    }
+
+    @Override
+    public void saveState(double[] state, int offset)
+    {
+        state[offset] = mIntegral;
+    }
+
+    @Override
+    public void restoreState(double[] state, int offset)
+    {
+        mIntegral = state[offset];
+    }
+}
@@ -0,0 +1,78 @@
+package root;
+
+/**
+ * Approximate quantiles of a stream of values in fixed size memory, by counting them in equal width bins over a range
+ * given up front. Quantiles are interpolated within a bin, so they're off by at most one bin width, and values outside
+ * the range are counted in the first or last bin. Sketches over the same range can be added together.
+ */
+public class QuantileSketch
+{
+    private final double mMin;
+    private final double mMax;
+    private final long[] mCounts;
+    private long mTotalCount = 0;
+    private double mSmallest = Double.POSITIVE_INFINITY;
+    private double mLargest = Double.NEGATIVE_INFINITY;
+
+    public QuantileSketch(double min, double max, int bins)
+    {
+        if (!(max > min) || bins < 1)
+            throw new IllegalArgumentException("Invalid sketch range " + min + " to " + max + " with " + bins + " bins");
+
+        mMin = min;
+        mMax = max;
+        mCounts = new long[bins];
+    }
+
+    public void add(double value)
+    {
+        int bin = (int) ((value - mMin) / (mMax - mMin) * mCounts.length);
+        ++mCounts[Math.max(0, Math.min(mCounts.length - 1, bin))];
+        ++mTotalCount;
+        mSmallest = Math.min(mSmallest, value);
+        mLargest = Math.max(mLargest, value);
+    }
+
+    public void add(QuantileSketch sketch)
+    {
+        if (sketch.mMin != mMin || sketch.mMax != mMax || sketch.mCounts.length != mCounts.length)
+            throw new IllegalArgumentException("Sketches have different ranges");
+
+        for (int i = 0; i < mCounts.length; ++i)
+            mCounts[i] += sketch.mCounts[i];
+
+        mTotalCount += sketch.mTotalCount;
+        mSmallest = Math.min(mSmallest, sketch.mSmallest);
+        mLargest = Math.max(mLargest, sketch.mLargest);
+    }
+
+    public long getCount()
+    {
+        return mTotalCount;
+    }
+
+    /**
+     * The value that a fraction q of the values are at or below, NaN if nothing has been added
+     */
+    public double getQuantile(double q)
+    {
+        if (mTotalCount == 0)
+            return Double.NaN;
+
+        double rank = q * mTotalCount;
+        double binWidth = (mMax - mMin) / mCounts.length;
+        long count = 0;
+
+        for (int i = 0; i < mCounts.length; ++i)
+        {
+            if (mCounts[i] > 0 && count + mCounts[i] >= rank)
+            {
+                double value = mMin + binWidth * (i + (rank - count) / mCounts[i]);
+                return Math.max(mSmallest, Math.min(mLargest, value));
+            }
+            count += mCounts[i];
+        }
+
+        return mLargest;
+    }
+}
@@ -0,0 +1,69 @@
+package root;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Perturbations arriving at random as a Poisson process between startTime and endTime, with normally distributed
+ * forces. The same seed always gives the same perturbations. Times are in nanoseconds like {@link Perturbation}.
+ */
+public class RandomPerturbationGenerator implements PerturbationGenerator
+{
+    private final long mSeed;
+    private final double mStartTime;
+    private final double mEndTime;
+    private final double mMeanInterval;
+    private final double mMeanForce;
+    private final double mForceStandardDeviation;
+    private final double mDuration;
+
+    public RandomPerturbationGenerator(long seed, double startTime, double endTime, double meanInterval,
+                                       double meanForce, double forceStandardDeviation, double duration)
+    {
+        if (meanInterval <= 0)
+            throw new IllegalArgumentException("Mean interval must be positive, got " + meanInterval);
+
+        mSeed = seed;
+        mStartTime = startTime;
+        mEndTime = endTime;
+        mMeanInterval = meanInterval;
+        mMeanForce = meanForce;
+        mForceStandardDeviation = forceStandardDeviation;
+        mDuration = duration;
+    }
+
+    @Override
+    public Iterator<Perturbation> iterator()
+    {
+        return new Iterator<Perturbation>()
+        {
+            private final Random mRandom = new Random(mSeed);
+            private double mNextTime = mStartTime + getInterval();
+
+            @Override
+            public boolean hasNext()
+            {
+                return mNextTime < mEndTime;
+            }
+
+            @Override
+            public Perturbation next()
+            {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                Perturbation perturbation = new Perturbation(mNextTime,
+                        mMeanForce + mForceStandardDeviation * mRandom.nextGaussian(), mDuration);
+                mNextTime += getInterval();
+                return perturbation;
+            }
+
+            private double getInterval()
+            {
+                // Exponentially distributed gaps between arrivals, 1 - nextDouble() keeps log away from 0
+                return -Math.log(1.0 - mRandom.nextDouble()) * mMeanInterval;
+            }
+        };
+    }
+}
@@ -0,0 +1,162 @@
+package root;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the controller from a config as a soft real time loop against the plant integrating in wall clock time, instead
+ * of computing the whole trajectory up front. The plant thread steps the model every dtNs of wall clock time and
+ * publishes its state through a seqlock. The controller thread wakes up at a fixed period, reads the latest state and
+ * publishes a new torque, which the plant holds until the next one. Neither loop allocates once it has started, so GC
+ * can't cause deadline misses.
+ */
+public class RealTimeLoop
+{
+    public static final long DEFAULT_CONTROL_PERIOD_NS = 1_000_000;
+
+    // Park until this close to the release time, then spin, because parking alone wakes up tens of microseconds late
+    private static final long SPIN_THRESHOLD_NS = 100_000;
+    // Time for both threads to start before the first release
+    private static final long START_DELAY_NS = 20_000_000;
+
+    private final SimulationConfig mConfig;
+    private final long mControlPeriodNs;
+
+    private final SeqLockState mState = new SeqLockState();
+    private volatile double mTorque = 0.0;
+    private volatile Throwable mFailure;
+
+    private long mStartTime;
+    private Trajectory mTrajectory;
+    private final LatencyHistogram mJitter = new LatencyHistogram();
+    private final LatencyHistogram mLatency = new LatencyHistogram();
+    private long mTicks;
+    private long mMissedDeadlines;
+
+    public RealTimeLoop(SimulationConfig config, long controlPeriodNs)
+    {
+        if (controlPeriodNs <= 0)
+            throw new IllegalArgumentException("Control period must be positive, got " + controlPeriodNs);
+
+        mConfig = config;
+        mControlPeriodNs = controlPeriodNs;
+    }
+
+    /**
+     * Blocks for the timespan of the config
+     */
+    public RealTimeResult run() throws InterruptedException
+    {
+        PendulumModel pendulumModel = mConfig.createPendulumModel();
+        pendulumModel.setState(mConfig.initialTheta, mConfig.initialThetaDot);
+        mState.write(0, pendulumModel.getTheta(), pendulumModel.getThetaDot());
+
+        // Sized for every sample so the plant thread never has to grow it
+        mTrajectory = new Trajectory(Math.max(1, mConfig.getSampleCount()));
+
+        mStartTime = System.nanoTime() + START_DELAY_NS;
+
+        Thread plantThread = new Thread(() -> runPlant(pendulumModel), "plant");
+        Thread controllerThread = new Thread(this::runController, "controller");
+        controllerThread.setPriority(Thread.MAX_PRIORITY);
+
+        plantThread.start();
+        controllerThread.start();
+        plantThread.join();
+        controllerThread.join();
+
+        if (mFailure != null)
+            throw new IllegalStateException("Real time loop failed", mFailure);
+
+        return new RealTimeResult(mTrajectory, mJitter, mLatency, mTicks, mMissedDeadlines);
+    }
+
+    private void runPlant(PendulumModel pendulumModel)
+    {
+        try
+        {
+            PerturbationSchedule perturbationSchedule = PerturbationSchedule.fromConfig(mConfig);
+
+            // If the thread falls behind it steps several times in a row to catch up with the wall clock
+            for (long t = 0; t < mConfig.timespanNs; t += mConfig.dtNs)
+            {
+                long wait = mStartTime + t - System.nanoTime();
+                if (wait > 0)
+                    LockSupport.parkNanos(wait);
+
+                pendulumModel.boundTheta();
+                double controllerTorque = mTorque;
+                double inputTorque = perturbationSchedule.addActiveForces(t, controllerTorque);
+
+                pendulumModel.step(inputTorque, mConfig.dtS);
+                mState.write(t + mConfig.dtNs, pendulumModel.getTheta(), pendulumModel.getThetaDot());
+
+                if (t % mConfig.saveStateEveryXNs == 0)
+                {
+                    mTrajectory.add(Constants.nanosecondsToSeconds(t), pendulumModel.getTheta(),
+                            pendulumModel.getThetaDot(), controllerTorque);
+                }
+            }
+        } catch (Throwable e)
+        {
+            mFailure = e;
+        }
+    }
+
+    private void runController()
+    {
+        try
+        {
+            Controller controller = mConfig.createController();
+            SeqLockState.Snapshot snapshot = new SeqLockState.Snapshot();
+            double controlPeriodS = Constants.nanosecondsToSeconds(mControlPeriodNs);
+            long endTime = mStartTime + mConfig.timespanNs;
+
+            long release = mStartTime;
+            while (release < endTime)
+            {
+                waitUntil(release);
+                long wakeTime = System.nanoTime();
+
+                mState.read(snapshot);
+                controller.advance(snapshot.theta, snapshot.thetaDot, controlPeriodS);
+                mTorque = controller.getTorque(snapshot.theta, snapshot.thetaDot);
+                Metrics.increment(Metrics.Counter.CONTROLLER_COMPUTATIONS);
+                if (controller.isSaturated(snapshot.theta, snapshot.thetaDot))
+                    Metrics.increment(Metrics.Counter.SATURATIONS);
+
+                long doneTime = System.nanoTime();
+                mJitter.record(wakeTime - release);
+                mLatency.record(doneTime - release);
+                ++mTicks;
+
+                // Skip the releases that have already gone by instead of running them back to back
+                long nextRelease = release + mControlPeriodNs;
+                if (doneTime > nextRelease)
+                {
+                    long missed = (doneTime - release) / mControlPeriodNs;
+                    mMissedDeadlines += missed;
+                    nextRelease = release + (missed + 1) * mControlPeriodNs;
+                }
+                release = nextRelease;
+            }
+        } catch (Throwable e)
+        {
+            mFailure = e;
+        }
+    }
+
+    private static void waitUntil(long time)
+    {
+        while (true)
+        {
+            long remaining = time - System.nanoTime();
+            if (remaining <= 0)
+                return;
+
+            if (remaining > SPIN_THRESHOLD_NS)
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NS);
+            else
+                Thread.onSpinWait();
+        }
+    }
+}
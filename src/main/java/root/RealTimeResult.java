@@ -0,0 +1,53 @@
+package root;
+
+/**
+ * What happened during a {@link RealTimeLoop} run. Jitter is how late each controller tick woke up after its release
+ * time and latency is from the release time until the new torque was published. A tick misses its deadline if it
+ * finishes after the next release, and every release skipped to catch up counts as another miss.
+ */
+public class RealTimeResult
+{
+    private final Trajectory mTrajectory;
+    private final LatencyHistogram mJitter;
+    private final LatencyHistogram mLatency;
+    private final long mTicks;
+    private final long mMissedDeadlines;
+
+    RealTimeResult(Trajectory trajectory, LatencyHistogram jitter, LatencyHistogram latency, long ticks,
+                   long missedDeadlines)
+    {
+        mTrajectory = trajectory;
+        mJitter = jitter;
+        mLatency = latency;
+        mTicks = ticks;
+        mMissedDeadlines = missedDeadlines;
+    }
+
+    /**
+     * The plant state saved every saveStateEveryXNs of the config, with the torque the controller had last published
+     */
+    public Trajectory getTrajectory()
+    {
+        return mTrajectory;
+    }
+
+    public LatencyHistogram getJitter()
+    {
+        return mJitter;
+    }
+
+    public LatencyHistogram getLatency()
+    {
+        return mLatency;
+    }
+
+    public long getTicks()
+    {
+        return mTicks;
+    }
+
+    public long getMissedDeadlines()
+    {
+        return mMissedDeadlines;
+    }
+}
@@ -0,0 +1,327 @@
+package root;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Results of runs that have been simulated before, looked up by {@link SimulationConfig#getHash()} so a config that's
+ * already been run is replayed instead of being simulated again. Changing anything in a config changes its hash, so
+ * entries never go stale and never need invalidating.
+ * <p>
+ * Each result is a file in the directory named after the hash, a {@link BinaryTrajectoryWriter} file with the run
+ * summary after the samples. It's written by a {@link Writer} as the samples are produced, so storing a run never
+ * needs its samples in memory, and replayed straight from the file mapped with {@link MappedTrajectory}. Results kept
+ * with {@link #put} are also held in memory in front of the files, the most recently used ones up to a total size. It
+ * can be used from any thread.
+ * <p>
+ * {@link #FORMAT_VERSION} is part of every file name. It has to be changed along with anything that changes what the
+ * simulation produces for the same config, which leaves the old files unused.
+ */
+public class ResultCache
+{
+    static final int FORMAT_VERSION = 1;
+
+    private static ResultCache sShared = null;
+    private static boolean sSharedCreated = false;
+
+    private final Path mDirectory;
+    private final long mMaxMemoryBytes;
+
+    private final Map<String, SimulationResult> mResults = new LinkedHashMap<>(16, 0.75f, true);
+    private long mMemoryBytes = 0;
+
+    public ResultCache(Path directory, long maxMemoryBytes) throws IOException
+    {
+        Files.createDirectories(directory);
+        mDirectory = directory;
+        mMaxMemoryBytes = maxMemoryBytes;
+    }
+
+    /**
+     * The cache in the directory set with -Dpendulum.cache.dir, which everything in the JVM shares, or null if it
+     * isn't set
+     */
+    public static synchronized ResultCache getShared()
+    {
+        if (!sSharedCreated)
+        {
+            sSharedCreated = true;
+
+            String directory = System.getProperty("pendulum.cache.dir");
+            if (directory != null)
+            {
+                try
+                {
+                    sShared = new ResultCache(Paths.get(directory), Constants.RESULT_CACHE_MEMORY_BYTES);
+                } catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        return sShared;
+    }
+
+    /**
+     * Hands every stored sample of config to listener, which can be null when only the summary is needed, and returns
+     * the stored summary. Returns null without calling listener if config hasn't been run.
+     */
+    public RunSummary replay(SimulationConfig config, SampleListener listener)
+    {
+        String hash = config.getHash();
+
+        SimulationResult result;
+        synchronized (mResults)
+        {
+            result = mResults.get(hash);
+        }
+
+        if (result != null)
+        {
+            if (listener != null)
+                replay(result.getTrajectory(), listener);
+            return result.getSummary();
+        }
+
+        return replayFile(config, getFile(hash), listener);
+    }
+
+    /**
+     * Starts storing a run of config, every sample has to go to the writer and then the summary to
+     * {@link Writer#commit}. A writer that fails along the way prints why and stores nothing, it never stops the run.
+     */
+    public Writer write(SimulationConfig config)
+    {
+        return new Writer(config);
+    }
+
+    /**
+     * Keeps a copy of result in memory, unless its trajectory is missing samples from being a ring or from a run that
+     * was stopped early. The file is written separately, by a {@link Writer}.
+     */
+    public void put(SimulationResult result)
+    {
+        SimulationConfig config = result.getConfig();
+        Trajectory trajectory = result.getTrajectory();
+        if (trajectory.getStartSample() != 0 || trajectory.size() != config.getSampleCount())
+            return;
+
+        Trajectory copy = new Trajectory(Math.max(1, trajectory.size()));
+        replay(trajectory, copy);
+
+        // Nothing outside the package can change a summary
+        remember(config.getHash(), new SimulationResult(config, copy, result.getSummary()));
+    }
+
+    /**
+     * The bytes of samples kept in memory
+     */
+    public long getMemoryBytes()
+    {
+        synchronized (mResults)
+        {
+            return mMemoryBytes;
+        }
+    }
+
+    private Path getFile(String hash)
+    {
+        return mDirectory.resolve(hash + "-v" + FORMAT_VERSION + ".bin");
+    }
+
+    private void remember(String hash, SimulationResult result)
+    {
+        long bytes = result.getTrajectory().getMemoryBytes();
+        if (bytes > mMaxMemoryBytes)
+            return;
+
+        synchronized (mResults)
+        {
+            SimulationResult previous = mResults.put(hash, result);
+            mMemoryBytes += bytes;
+            if (previous != null)
+                mMemoryBytes -= previous.getTrajectory().getMemoryBytes();
+
+            // Least recently used first
+            Iterator<SimulationResult> iterator = mResults.values().iterator();
+            while (mMemoryBytes > mMaxMemoryBytes)
+            {
+                mMemoryBytes -= iterator.next().getTrajectory().getMemoryBytes();
+                iterator.remove();
+            }
+        }
+    }
+
+    private static RunSummary replayFile(SimulationConfig config, Path file, SampleListener listener)
+    {
+        if (!Files.exists(file))
+            return null;
+
+        MappedTrajectory trajectory;
+        RunSummary summary;
+        try
+        {
+            trajectory = MappedTrajectory.open(file.toString());
+            if (trajectory.size() != config.getSampleCount())
+                return null;
+
+            // Read before any samples go to the listener, so a file that turns out to be incomplete is a clean miss
+            ByteBuffer summaryBuffer = ByteBuffer.allocate(RunSummary.SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            long position = BinaryTrajectoryWriter.HEADER_SIZE
+                    + (long) trajectory.size() * BinaryTrajectoryWriter.RECORD_SIZE;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+            {
+                while (summaryBuffer.hasRemaining())
+                {
+                    if (channel.read(summaryBuffer, position + summaryBuffer.position()) < 0)
+                        return null;
+                }
+            }
+            summaryBuffer.flip();
+            summary = RunSummary.readFrom(summaryBuffer);
+        } catch (IOException | IllegalArgumentException e)
+        {
+            // A file that was cut short or isn't a result is a miss, and storing the result again writes over it
+            return null;
+        }
+
+        if (listener != null)
+        {
+            for (int i = 0; i < trajectory.size(); ++i)
+            {
+                listener.onSample(i, trajectory.getTime(i), trajectory.getTheta(i), trajectory.getThetaDot(i),
+                        trajectory.getTorque(i));
+            }
+        }
+
+        return summary;
+    }
+
+    private static void replay(Trajectory trajectory, SampleListener listener)
+    {
+        for (int i = trajectory.getStartSample(); i < trajectory.getEndSample(); ++i)
+        {
+            listener.onSample(i, trajectory.getTime(i), trajectory.getTheta(i), trajectory.getThetaDot(i),
+                    trajectory.getTorque(i));
+        }
+    }
+
+    /**
+     * Writes one run to a file to the side as its samples come in, which {@link #commit} moves into place with the
+     * summary once the run is done, so a reader never sees half a result
+     */
+    public class Writer implements SampleListener, Closeable
+    {
+        private final SimulationConfig mConfig;
+        private Path mTemporaryFile;
+        private BinaryTrajectoryWriter mWriter;
+        private int mSampleCount = 0;
+
+        private Writer(SimulationConfig config)
+        {
+            mConfig = config;
+
+            try
+            {
+                mTemporaryFile = Files.createTempFile(mDirectory, "result", ".tmp");
+                mWriter = new BinaryTrajectoryWriter(mTemporaryFile.toString(), config.saveStateEveryXNs);
+            } catch (IOException e)
+            {
+                fail(e);
+            }
+        }
+
+        @Override
+        public void onSample(int sample, double time, double theta, double thetaDot, double torque)
+        {
+            if (mWriter == null)
+                return;
+
+            try
+            {
+                mWriter.onSample(sample, time, theta, thetaDot, torque);
+                ++mSampleCount;
+            } catch (UncheckedIOException e)
+            {
+                fail(e);
+            }
+        }
+
+        /**
+         * Stores the run with summary, unless it's missing samples from being stopped early
+         */
+        public void commit(RunSummary summary)
+        {
+            if (mWriter == null || mSampleCount != mConfig.getSampleCount())
+            {
+                close();
+                return;
+            }
+
+            try
+            {
+                BinaryTrajectoryWriter writer = mWriter;
+                mWriter = null;
+                writer.close();
+
+                ByteBuffer summaryBuffer = ByteBuffer.allocate(RunSummary.SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                summary.writeTo(summaryBuffer);
+                summaryBuffer.flip();
+                try (FileChannel channel = FileChannel.open(mTemporaryFile, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND))
+                {
+                    while (summaryBuffer.hasRemaining())
+                        channel.write(summaryBuffer);
+                }
+
+                Files.move(mTemporaryFile, getFile(mConfig.getHash()), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+                mTemporaryFile = null;
+            } catch (IOException e)
+            {
+                fail(e);
+            }
+        }
+
+        /**
+         * Throws away anything that hasn't been committed
+         */
+        @Override
+        public void close()
+        {
+            try
+            {
+                if (mWriter != null)
+                    mWriter.close();
+                if (mTemporaryFile != null)
+                    Files.deleteIfExists(mTemporaryFile);
+            } catch (IOException e)
+            {
+                e.printStackTrace();
+            } finally
+            {
+                mWriter = null;
+                mTemporaryFile = null;
+            }
+        }
+
+        private void fail(Exception e)
+        {
+            e.printStackTrace();
+            close();
+        }
+    }
+}
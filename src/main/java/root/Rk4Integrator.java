@@ -0,0 +1,30 @@
+package root;
+
+/**
+ * Classic fixed step RK4. The torque source is evaluated once at the start of each step and held for the whole step,
+ * the same as a digital controller running at the step rate.
+ */
+public class Rk4Integrator implements Integrator
+{
+    private final double mStepSize;
+
+    public Rk4Integrator(double stepSize)
+    {
+        mStepSize = stepSize;
+    }
+
+    @Override
+    public int advance(PendulumModel model, TorqueSource torqueSource, double duration)
+    {
+        // Split the duration into equal steps no longer than the step size, a duration of exactly one step is taken as is
+        int steps = Math.max(1, (int) Math.ceil(duration / mStepSize - 1e-9));
+        double stepSize = steps == 1 ? duration : duration / steps;
+
+        for (int step = 0; step < steps; ++step)
+            model.step(torqueSource.getTorque(model.getTheta(), model.getThetaDot()), stepSize);
+
+        Metrics.add(Metrics.Counter.INTEGRATOR_STEPS, steps);
+        Metrics.add(Metrics.Counter.DERIVATIVE_EVALUATIONS, steps * 4);
+        return steps * 4;
+    }
+}
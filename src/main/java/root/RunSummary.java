@@ -0,0 +1,96 @@
+package root;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Metrics about a whole run that are accumulated while it's simulated, so they're available without keeping any of
+ * the samples around
+ */
+public class RunSummary
+{
+    // The bytes writeTo puts out
+    static final int SIZE = 6 * Long.BYTES;
+
+    private long mSteps = 0;
+    private long mSaturatedSteps = 0;
+    private double mMaxAbsTheta = 0.0;
+    // NaN while theta is outside the settled tolerance, otherwise the first update time since it came back within it
+    private double mSettlingTime = 0.0;
+    private boolean mFell = false;
+    private long mDerivativeEvaluations = 0;
+
+    void update(double time, double theta, boolean saturated)
+    {
+        double absTheta = Math.abs(theta);
+
+        if (absTheta > mMaxAbsTheta)
+            mMaxAbsTheta = absTheta;
+
+        if (absTheta > Constants.SETTLED_THETA_TOLERANCE)
+            mSettlingTime = Double.NaN;
+        else if (Double.isNaN(mSettlingTime))
+            mSettlingTime = time;
+
+        if (absTheta > Constants.FALLEN_THETA)
+            mFell = true;
+
+        if (saturated)
+            ++mSaturatedSteps;
+
+        ++mSteps;
+    }
+
+    void addDerivativeEvaluations(int derivativeEvaluations)
+    {
+        mDerivativeEvaluations += derivativeEvaluations;
+    }
+
+    void writeTo(ByteBuffer buffer)
+    {
+        buffer.putLong(mSteps).putLong(mSaturatedSteps).putDouble(mMaxAbsTheta).putDouble(mSettlingTime)
+                .putLong(mFell ? 1 : 0).putLong(mDerivativeEvaluations);
+    }
+
+    static RunSummary readFrom(ByteBuffer buffer)
+    {
+        RunSummary summary = new RunSummary();
+        summary.mSteps = buffer.getLong();
+        summary.mSaturatedSteps = buffer.getLong();
+        summary.mMaxAbsTheta = buffer.getDouble();
+        summary.mSettlingTime = buffer.getDouble();
+        summary.mFell = buffer.getLong() != 0;
+        summary.mDerivativeEvaluations = buffer.getLong();
+        return summary;
+    }
+
+    /**
+     * The time after which theta stayed within the settled tolerance, or NaN if it was still outside it at the end
+     */
+    public double getSettlingTime()
+    {
+        return mSettlingTime;
+    }
+
+    public double getMaxAbsTheta()
+    {
+        return mMaxAbsTheta;
+    }
+
+    /**
+     * The fraction of steps where the controller asked for more than the max torque output and got clamped
+     */
+    public double getSaturationFraction()
+    {
+        return mSteps == 0 ? 0.0 : (double) mSaturatedSteps / mSteps;
+    }
+
+    public boolean fell()
+    {
+        return mFell;
+    }
+
+    public long getDerivativeEvaluations()
+    {
+        return mDerivativeEvaluations;
+    }
+}
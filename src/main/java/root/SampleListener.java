@@ -0,0 +1,27 @@
+package root;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Receives samples as a {@link Simulator} saves them, in order, so they can be stored or written out while the run is
+ * still going
+ */
+public interface SampleListener
+{
+    void onSample(int sample, double time, double theta, double thetaDot, double torque);
+
+    /**
+     * Passes every sample on to each of listeners in order, skipping any that are null
+     */
+    static SampleListener of(SampleListener... listeners)
+    {
+        SampleListener[] nonNullListeners = Arrays.stream(listeners).filter(Objects::nonNull).toArray(SampleListener[]::new);
+
+        return (sample, time, theta, thetaDot, torque) ->
+        {
+            for (SampleListener listener : nonNullListeners)
+                listener.onSample(sample, time, theta, thetaDot, torque);
+        };
+    }
+}
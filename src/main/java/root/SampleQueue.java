@@ -0,0 +1,130 @@
+package root;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded lock free queue of samples from one producer thread to one consumer thread, so a simulation can run in the
+ * background while the samples are used as they arrive. Samples are stored in primitive arrays used as a ring, and
+ * each side only ever writes its own index. The producer waits while the queue is full, until the consumer catches
+ * up or {@link #close()}s it.
+ */
+public class SampleQueue implements SampleListener
+{
+    private static final long FULL_WAIT_NS = 100_000;
+
+    private final int mMask;
+    private final int[] mSample;
+    private final double[] mTime;
+    private final double[] mTheta;
+    private final double[] mThetaDot;
+    private final double[] mTorque;
+
+    // The next slot to read, only written by the consumer
+    private final AtomicLong mHead = new AtomicLong();
+    // The next slot to write, only written by the producer
+    private final AtomicLong mTail = new AtomicLong();
+    // The producer's last look at mHead, so it only reads the consumer's index when the queue looks full
+    private long mCachedHead = 0;
+
+    private volatile boolean mFinished = false;
+    private volatile boolean mClosed = false;
+
+    /**
+     * Capacity is rounded up to a power of two
+     */
+    public SampleQueue(int capacity)
+    {
+        if (capacity < 1 || capacity > 1 << 30)
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30, got " + capacity);
+
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+
+        mMask = size - 1;
+        mSample = new int[size];
+        mTime = new double[size];
+        mTheta = new double[size];
+        mThetaDot = new double[size];
+        mTorque = new double[size];
+    }
+
+    /**
+     * Only called from the producer thread, waits while the queue is full and drops the sample if it's been closed
+     */
+    @Override
+    public void onSample(int sample, double time, double theta, double thetaDot, double torque)
+    {
+        long tail = mTail.get();
+
+        while (tail - mCachedHead > mMask)
+        {
+            mCachedHead = mHead.get();
+            if (tail - mCachedHead <= mMask)
+                break;
+
+            if (mClosed)
+                return;
+
+            LockSupport.parkNanos(FULL_WAIT_NS);
+        }
+
+        int index = (int) tail & mMask;
+        mSample[index] = sample;
+        mTime[index] = time;
+        mTheta[index] = theta;
+        mThetaDot[index] = thetaDot;
+        mTorque[index] = torque;
+
+        // Release the slot only after it's been written
+        mTail.lazySet(tail + 1);
+    }
+
+    /**
+     * Called from the producer thread after its last sample
+     */
+    public void finish()
+    {
+        mFinished = true;
+    }
+
+    /**
+     * Called from the consumer thread when it doesn't want any more samples, so the producer stops waiting for space
+     */
+    public void close()
+    {
+        mClosed = true;
+    }
+
+    /**
+     * Only called from the consumer thread. Hands up to maxSamples of the queued samples to listener in order and
+     * returns how many there were.
+     */
+    public int drainTo(SampleListener listener, int maxSamples)
+    {
+        long head = mHead.get();
+        int count = (int) Math.min(mTail.get() - head, maxSamples);
+
+        for (int i = 0; i < count; ++i)
+        {
+            int index = (int) (head + i) & mMask;
+            listener.onSample(mSample[index], mTime[index], mTheta[index], mThetaDot[index], mTorque[index]);
+        }
+
+        mHead.lazySet(head + count);
+        return count;
+    }
+
+    /**
+     * True once the producer has finished and every sample has been drained, only meaningful on the consumer thread
+     */
+    public boolean isDone()
+    {
+        // Read the flag first, everything queued before finish() is visible once it's seen
+        return mFinished && mTail.get() == mHead.get();
+    }
+
+    public int getCapacity()
+    {
+        return mMask + 1;
+    }
+}
@@ -0,0 +1,66 @@
+package root;
+
+/**
+ * Another controller's torque clamped to +-maxTorqueOutput, the most the motor can put out
+ */
+public class SaturatedController implements Controller
+{
+    private final Controller mController;
+    private final double mMaxTorqueOutput;
+
+    public SaturatedController(Controller controller, double maxTorqueOutput)
+    {
+        if (!(maxTorqueOutput >= 0))
+            throw new IllegalArgumentException("Max torque output can't be negative, got " + maxTorqueOutput);
+
+        mController = controller;
+        mMaxTorqueOutput = maxTorqueOutput;
+    }
+
+    @Override
+    public double getTorque(double theta, double thetaDot)
+    {
+        double torque = mController.getTorque(theta, thetaDot);
+
+        if (Math.abs(torque) > mMaxTorqueOutput)
+            return Math.copySign(mMaxTorqueOutput, torque);
+
+        return torque;
+    }
+
+    @Override
+    public void advance(double theta, double thetaDot, double dt)
+    {
+        mController.advance(theta, thetaDot, dt);
+    }
+
+    @Override
+    public void reset()
+    {
+        mController.reset();
+    }
+
+    @Override
+    public boolean isSaturated(double theta, double thetaDot)
+    {
+        return Math.abs(mController.getTorque(theta, thetaDot)) > mMaxTorqueOutput;
+    }
+
+    @Override
+    public int getStateSize()
+    {
+        return mController.getStateSize();
+    }
+
+    @Override
+    public void saveState(double[] state, int offset)
+    {
+        mController.saveState(state, offset);
+    }
+
+    @Override
+    public void restoreState(double[] state, int offset)
+    {
+        mController.restoreState(state, offset);
+    }
+}
@@ -0,0 +1,16 @@
+package root;
+
+/**
+ * A named config loaded from a scenario file, see {@link ScenarioParser}
+ */
+public class Scenario
+{
+    public final String name;
+    public final SimulationConfig config;
+
+    public Scenario(String name, SimulationConfig config)
+    {
+        this.name = name;
+        this.config = config;
+    }
+}
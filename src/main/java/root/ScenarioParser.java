@@ -0,0 +1,452 @@
+package root;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Reads scenarios from a text file, so they can be changed without recompiling and many of them can be run in one go.
+ * Each scenario starts with its name in square brackets and is followed by key = value lines. Keys before the first
+ * scenario are defaults for every scenario in the file, and anything not set at all keeps its value from
+ * {@link Constants}. Everything after a # is a comment. For example
+ * <pre>
+ * timespan = 5
+ * integrator = dormand_prince
+ *
+ * [nominal]
+ *
+ * [heavy]
+ * pendulum_mass = 2.0
+ * perturbation = 1.0, 2.3, 0.5
+ * </pre>
+ * Times are in seconds. Values are checked as they're read and every scenario is checked once it's complete, any
+ * problem is reported with the file and line it's on.
+ * <p>
+ * Keys are the lower case names of the {@link SimulationConfig} fields split with underscores, with initial_theta and
+ * initial_theta_dot for the initial state. The perturbation keys can be repeated and each one adds to the list. A
+ * scenario that has any of them replaces the default ones of that kind rather than adding to them.
+ * <ul>
+ * <li>perturbation = time, force, duration</li>
+ * <li>periodic_perturbation = start, end, period, force, duration</li>
+ * <li>random_perturbation = seed, start, end, mean_interval, mean_force, force_standard_deviation, duration</li>
+ * </ul>
+ */
+public class ScenarioParser
+{
+    // The name of the only scenario in a file that has no [name] lines
+    public static final String DEFAULT_SCENARIO_NAME = "default";
+
+    private final String mSource;
+    private final SimulationConfig mInitial = new SimulationConfig.Builder().build();
+
+    // Replayed at the start of every scenario, and checked on their own as they're read so a mistake in them isn't
+    // reported for the first scenario
+    private final List<Entry> mDefaults = new ArrayList<>();
+    private final Values mDefaultValues = new Values();
+
+    private final List<Scenario> mScenarios = new ArrayList<>();
+    private final Set<String> mNames = new HashSet<>();
+
+    // The scenario being read, null before the first one
+    private String mName = null;
+    private int mNameLine = 0;
+    private Values mValues = null;
+
+    private ScenarioParser(String source)
+    {
+        mSource = source;
+    }
+
+    public static List<Scenario> load(String fileName) throws IOException
+    {
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(fileName)))
+        {
+            return parse(reader, fileName);
+        }
+    }
+
+    /**
+     * Source is only used to say where a problem is
+     */
+    public static List<Scenario> parse(BufferedReader reader, String source) throws IOException
+    {
+        ScenarioParser parser = new ScenarioParser(source);
+
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null)
+            parser.parseLine(line, ++lineNumber);
+
+        return parser.finish();
+    }
+
+    /**
+     * The scenario called name in scenarios
+     */
+    public static Scenario find(List<Scenario> scenarios, String name)
+    {
+        for (Scenario scenario : scenarios)
+        {
+            if (scenario.name.equals(name))
+                return scenario;
+        }
+
+        throw new IllegalArgumentException("No scenario called \"" + name + "\"");
+    }
+
+    private void parseLine(String line, int lineNumber)
+    {
+        int comment = line.indexOf('#');
+        if (comment >= 0)
+            line = line.substring(0, comment);
+
+        line = line.trim();
+        if (line.isEmpty())
+            return;
+
+        if (line.charAt(0) == '[')
+        {
+            if (line.charAt(line.length() - 1) != ']')
+                throw error(lineNumber, "Expected [name], got \"" + line + "\"");
+
+            String name = line.substring(1, line.length() - 1).trim();
+            if (name.isEmpty())
+                throw error(lineNumber, "Scenario name is empty");
+            if (!mNames.add(name))
+                throw error(lineNumber, "There's already a scenario called \"" + name + "\"");
+
+            finishScenario();
+            mName = name;
+            mNameLine = lineNumber;
+            mValues = new Values();
+            for (Entry entry : mDefaults)
+                mValues.apply(entry);
+            mValues.startScenario();
+            return;
+        }
+
+        int equals = line.indexOf('=');
+        if (equals < 0)
+            throw error(lineNumber, "Expected key = value, got \"" + line + "\"");
+
+        Entry entry = new Entry(lineNumber, line.substring(0, equals).trim().toLowerCase(Locale.ROOT),
+                line.substring(equals + 1).trim());
+
+        if (mValues != null)
+        {
+            mValues.apply(entry);
+        } else
+        {
+            mDefaultValues.apply(entry);
+            mDefaults.add(entry);
+        }
+    }
+
+    private List<Scenario> finish()
+    {
+        if (mValues == null)
+        {
+            mName = DEFAULT_SCENARIO_NAME;
+            mNameLine = 1;
+            mValues = mDefaultValues;
+        }
+
+        finishScenario();
+        return mScenarios;
+    }
+
+    private void finishScenario()
+    {
+        if (mValues == null)
+            return;
+
+        try
+        {
+            mScenarios.add(new Scenario(mName, mValues.build()));
+        } catch (IllegalArgumentException e)
+        {
+            throw error(mNameLine, "Scenario \"" + mName + "\": " + e.getMessage());
+        }
+    }
+
+    private IllegalArgumentException error(int lineNumber, String message)
+    {
+        return new IllegalArgumentException(mSource + ":" + lineNumber + ": " + message);
+    }
+
+    private static class Entry
+    {
+        final int line;
+        final String key;
+        final String value;
+
+        Entry(int line, String key, String value)
+        {
+            this.line = line;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * A scenario as it's being put together from its entries
+     */
+    private class Values
+    {
+        private final SimulationConfig.Builder mBuilder = new SimulationConfig.Builder();
+
+        private double mAbsoluteTolerance = mInitial.absoluteTolerance;
+        private double mRelativeTolerance = mInitial.relativeTolerance;
+        private double mInitialTheta = mInitial.initialTheta;
+        private double mInitialThetaDot = mInitial.initialThetaDot;
+
+        // Null until a perturbation key is seen, the inherited flags make the first one in a scenario start over
+        private List<Perturbation> mPerturbations = null;
+        private List<PerturbationGenerator> mPerturbationGenerators = null;
+        private boolean mInheritedPerturbations = false;
+        private boolean mInheritedGenerators = false;
+
+        void startScenario()
+        {
+            mInheritedPerturbations = true;
+            mInheritedGenerators = true;
+        }
+
+        SimulationConfig build()
+        {
+            mBuilder.setTolerances(mAbsoluteTolerance, mRelativeTolerance)
+                    .setInitialState(mInitialTheta, mInitialThetaDot);
+
+            if (mPerturbations != null)
+                mBuilder.setPerturbations(mPerturbations);
+            if (mPerturbationGenerators != null)
+                mBuilder.setPerturbationGenerators(mPerturbationGenerators);
+
+            return mBuilder.build();
+        }
+
+        void apply(Entry entry)
+        {
+            try
+            {
+                applyValue(entry.key, entry.value);
+            } catch (IllegalArgumentException e)
+            {
+                throw error(entry.line, e.getMessage());
+            }
+        }
+
+        private void applyValue(String key, String value)
+        {
+            switch (key)
+            {
+                case "linearized":
+                    mBuilder.setLinearized(parseBoolean(value));
+                    break;
+                case "use_pid":
+                    mBuilder.setUsePid(parseBoolean(value));
+                    break;
+                case "use_eigenvalue_placement":
+                    mBuilder.setUseEigenvaluePlacement(parseBoolean(value));
+                    break;
+                case "kp":
+                    mBuilder.setKp(parseDouble(value));
+                    break;
+                case "ki":
+                    mBuilder.setKi(parseDouble(value));
+                    break;
+                case "kd":
+                    mBuilder.setKd(parseDouble(value));
+                    break;
+                case "use_anti_windup":
+                    mBuilder.setUseAntiWindup(parseBoolean(value));
+                    break;
+                case "eigenvalue_1":
+                    mBuilder.setEigenvalue1(parseDouble(value));
+                    break;
+                case "eigenvalue_2":
+                    mBuilder.setEigenvalue2(parseDouble(value));
+                    break;
+                case "use_lqr":
+                    mBuilder.setUseLqr(parseBoolean(value));
+                    break;
+                case "lqr_theta_weight":
+                    mBuilder.setLqrThetaWeight(parseDouble(value));
+                    break;
+                case "lqr_theta_dot_weight":
+                    mBuilder.setLqrThetaDotWeight(parseDouble(value));
+                    break;
+                case "lqr_torque_weight":
+                    mBuilder.setLqrTorqueWeight(parseDouble(value));
+                    break;
+                case "max_torque_output":
+                    mBuilder.setMaxTorqueOutput(parseDouble(value));
+                    break;
+                case "include_perturbations":
+                    mBuilder.setIncludePerturbations(parseBoolean(value));
+                    break;
+                case "timespan":
+                    mBuilder.setTimespanNs(parseSeconds(value));
+                    break;
+                case "save_state_every":
+                    mBuilder.setSaveStateEveryXNs(parseSeconds(value));
+                    break;
+                case "dt":
+                    mBuilder.setDtNs(parseSeconds(value));
+                    break;
+                case "integrator":
+                    mBuilder.setIntegrator(parseIntegrator(value));
+                    break;
+                case "absolute_tolerance":
+                    mAbsoluteTolerance = parseDouble(value);
+                    break;
+                case "relative_tolerance":
+                    mRelativeTolerance = parseDouble(value);
+                    break;
+                case "initial_theta":
+                    mInitialTheta = parseDouble(value);
+                    break;
+                case "initial_theta_dot":
+                    mInitialThetaDot = parseDouble(value);
+                    break;
+                case "pendulum_width":
+                    mBuilder.setPendulumWidth(parseDouble(value));
+                    break;
+                case "pendulum_length":
+                    mBuilder.setPendulumLength(parseDouble(value));
+                    break;
+                case "pendulum_mass":
+                    mBuilder.setPendulumMass(parseDouble(value));
+                    break;
+                case "viscous_friction":
+                    mBuilder.setViscousFriction(parseDouble(value));
+                    break;
+                case "gravity":
+                    mBuilder.setGravity(parseDouble(value));
+                    break;
+                case "perturbation":
+                    addPerturbation(parsePerturbation(value));
+                    break;
+                case "periodic_perturbation":
+                case "random_perturbation":
+                    addPerturbationGenerator(parsePerturbationGenerator(key, value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown key \"" + key + "\"");
+            }
+        }
+
+        private void addPerturbation(Perturbation perturbation)
+        {
+            if (mPerturbations == null || mInheritedPerturbations)
+            {
+                mPerturbations = new ArrayList<>();
+                mInheritedPerturbations = false;
+            }
+
+            mPerturbations.add(perturbation);
+        }
+
+        private void addPerturbationGenerator(PerturbationGenerator generator)
+        {
+            if (mPerturbationGenerators == null || mInheritedGenerators)
+            {
+                mPerturbationGenerators = new ArrayList<>();
+                mInheritedGenerators = false;
+            }
+
+            mPerturbationGenerators.add(generator);
+        }
+    }
+
+    private static Perturbation parsePerturbation(String value)
+    {
+        double[] values = parseList(value, 3, "time, force, duration");
+        return new Perturbation(secondsToNanoseconds(values[0]), values[1], secondsToNanoseconds(values[2]));
+    }
+
+    private static PerturbationGenerator parsePerturbationGenerator(String key, String value)
+    {
+        if (key.equals("periodic_perturbation"))
+        {
+            double[] values = parseList(value, 5, "start, end, period, force, duration");
+            return new PeriodicPerturbationGenerator(secondsToNanoseconds(values[0]), secondsToNanoseconds(values[1]),
+                    secondsToNanoseconds(values[2]), values[3], secondsToNanoseconds(values[4]));
+        }
+
+        double[] values = parseList(value, 7,
+                "seed, start, end, mean_interval, mean_force, force_standard_deviation, duration");
+        if (values[0] != (long) values[0])
+            throw new IllegalArgumentException("Seed must be a whole number, got " + values[0]);
+
+        return new RandomPerturbationGenerator((long) values[0], secondsToNanoseconds(values[1]),
+                secondsToNanoseconds(values[2]), secondsToNanoseconds(values[3]), values[4], values[5],
+                secondsToNanoseconds(values[6]));
+    }
+
+    private static double[] parseList(String value, int count, String expected)
+    {
+        String[] parts = value.split(",");
+        if (parts.length != count)
+            throw new IllegalArgumentException("Expected " + expected + ", got \"" + value + "\"");
+
+        double[] values = new double[count];
+        for (int i = 0; i < count; ++i)
+            values[i] = parseDouble(parts[i].trim());
+        return values;
+    }
+
+    private static boolean parseBoolean(String value)
+    {
+        // Boolean.parseBoolean would take anything that isn't "true" as false
+        if (value.equalsIgnoreCase("true"))
+            return true;
+        if (value.equalsIgnoreCase("false"))
+            return false;
+
+        throw new IllegalArgumentException("Expected true or false, got \"" + value + "\"");
+    }
+
+    private static double parseDouble(String value)
+    {
+        try
+        {
+            double parsed = Double.parseDouble(value);
+            if (Double.isFinite(parsed))
+                return parsed;
+        } catch (NumberFormatException e)
+        {
+            // Reported below
+        }
+
+        throw new IllegalArgumentException("Expected a number, got \"" + value + "\"");
+    }
+
+    private static long parseSeconds(String value)
+    {
+        return secondsToNanoseconds(parseDouble(value));
+    }
+
+    private static long secondsToNanoseconds(double seconds)
+    {
+        // Rounded rather than truncated like Constants.secondsToNanoseconds, so 0.3 s doesn't come out 1 ns short
+        return Math.round(seconds * 1_000_000_000L);
+    }
+
+    private static Integrator.Type parseIntegrator(String value)
+    {
+        try
+        {
+            return Integrator.Type.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e)
+        {
+            throw new IllegalArgumentException("Unknown integrator \"" + value + "\"");
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package root;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * The latest plant state, written by one thread and read by any number of others without locking or allocating. The
+ * sequence is odd while a write is in progress, so a reader retries if it was odd or changed while reading.
+ */
+class SeqLockState
+{
+    static class Snapshot
+    {
+        long timeNs;
+        double theta;
+        double thetaDot;
+    }
+
+    private volatile long mSequence = 0;
+
+    private long mTimeNs;
+    private double mTheta;
+    private double mThetaDot;
+
+    /**
+     * Only ever called from a single thread
+     */
+    void write(long timeNs, double theta, double thetaDot)
+    {
+        long sequence = mSequence;
+        mSequence = sequence + 1;
+        VarHandle.storeStoreFence();
+
+        mTimeNs = timeNs;
+        mTheta = theta;
+        mThetaDot = thetaDot;
+
+        mSequence = sequence + 2;
+    }
+
+    void read(Snapshot snapshot)
+    {
+        while (true)
+        {
+            long sequence = mSequence;
+            if ((sequence & 1) == 0)
+            {
+                long timeNs = mTimeNs;
+                double theta = mTheta;
+                double thetaDot = mThetaDot;
+                VarHandle.loadLoadFence();
+
+                if (mSequence == sequence)
+                {
+                    snapshot.timeNs = timeNs;
+                    snapshot.theta = theta;
+                    snapshot.thetaDot = thetaDot;
+                    return;
+                }
+            }
+
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,565 @@
+package root;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Everything a single simulation run depends on. Instances are immutable, use {@link Builder} to make one, which starts
+ * out with the values in {@link Constants}, or load them from a file with {@link ScenarioParser}. Values that can't be
+ * simulated are rejected when the config is built.
+ */
+public class SimulationConfig
+{
+    public final boolean linearized;
+
+    public final boolean usePid;
+    public final boolean useEigenvaluePlacement;
+    public final double kp;
+    public final double ki;
+    public final double kd;
+    public final boolean useAntiWindup;
+    public final double eigenvalue1;
+    public final double eigenvalue2;
+    public final boolean useLqr;
+    public final double lqrThetaWeight;
+    public final double lqrThetaDotWeight;
+    public final double lqrTorqueWeight;
+    public final double maxTorqueOutput;
+
+    public final boolean includePerturbations;
+    public final List<Perturbation> perturbations;
+    public final List<PerturbationGenerator> perturbationGenerators;
+
+    public final long timespanNs;
+    public final long saveStateEveryXNs;
+    public final long dtNs;
+    public final double dtS;
+
+    public final Integrator.Type integrator;
+    public final double absoluteTolerance;
+    public final double relativeTolerance;
+
+    public final double initialTheta;
+    public final double initialThetaDot;
+
+    public final double pendulumWidth;
+    public final double pendulumLength;
+    public final double pendulumMass;
+    public final double viscousFriction;
+    public final double gravity;
+
+    // The plant the controller is designed for, null if it's this one
+    public final SimulationConfig nominal;
+
+    private SimulationConfig(Builder builder)
+    {
+        linearized = builder.mLinearized;
+        usePid = builder.mUsePid;
+        useEigenvaluePlacement = builder.mUseEigenvaluePlacement;
+        kp = builder.mKp;
+        ki = builder.mKi;
+        kd = builder.mKd;
+        useAntiWindup = builder.mUseAntiWindup;
+        eigenvalue1 = builder.mEigenvalue1;
+        eigenvalue2 = builder.mEigenvalue2;
+        useLqr = builder.mUseLqr;
+        lqrThetaWeight = builder.mLqrThetaWeight;
+        lqrThetaDotWeight = builder.mLqrThetaDotWeight;
+        lqrTorqueWeight = builder.mLqrTorqueWeight;
+        maxTorqueOutput = builder.mMaxTorqueOutput;
+        includePerturbations = builder.mIncludePerturbations;
+        perturbations = Collections.unmodifiableList(new ArrayList<>(builder.mPerturbations));
+        perturbationGenerators = Collections.unmodifiableList(new ArrayList<>(builder.mPerturbationGenerators));
+        timespanNs = builder.mTimespanNs;
+        saveStateEveryXNs = builder.mSaveStateEveryXNs;
+        dtNs = builder.mDtNs;
+        dtS = Constants.nanosecondsToSeconds(dtNs);
+        integrator = builder.mIntegrator;
+        absoluteTolerance = builder.mAbsoluteTolerance;
+        relativeTolerance = builder.mRelativeTolerance;
+        initialTheta = builder.mInitialTheta;
+        initialThetaDot = builder.mInitialThetaDot;
+        pendulumWidth = builder.mPendulumWidth;
+        pendulumLength = builder.mPendulumLength;
+        pendulumMass = builder.mPendulumMass;
+        viscousFriction = builder.mViscousFriction;
+        gravity = builder.mGravity;
+        nominal = builder.mNominal;
+
+        validate();
+    }
+
+    private void validate()
+    {
+        if (dtNs <= 0 || saveStateEveryXNs <= 0)
+            throw new IllegalArgumentException("Step and save period must be positive, got " + dtNs + " ns and "
+                    + saveStateEveryXNs + " ns");
+        if (timespanNs < 0)
+            throw new IllegalArgumentException("Timespan can't be negative, got " + timespanNs + " ns");
+        if (!(pendulumWidth > 0 && pendulumLength > 0 && pendulumMass > 0))
+            throw new IllegalArgumentException("Pendulum width, length and mass must be positive");
+        if (!(viscousFriction >= 0))
+            throw new IllegalArgumentException("Viscous friction can't be negative, got " + viscousFriction);
+        if (!(maxTorqueOutput >= 0))
+            throw new IllegalArgumentException("Max torque output can't be negative, got " + maxTorqueOutput);
+        if (integrator == Integrator.Type.DORMAND_PRINCE && !(absoluteTolerance > 0 && relativeTolerance > 0))
+            throw new IllegalArgumentException("Tolerances must be positive");
+        if (useLqr && !(lqrThetaWeight >= 0 && lqrThetaDotWeight >= 0 && lqrTorqueWeight > 0))
+            throw new IllegalArgumentException("LQR state weights can't be negative and the torque weight must be positive");
+        if (integrator == Integrator.Type.ZERO_ORDER_HOLD && !linearized)
+            throw new IllegalArgumentException("Zero order hold only works for the linearized model");
+    }
+
+    public PendulumModel createPendulumModel()
+    {
+        return new PendulumModel(pendulumWidth, pendulumLength, pendulumMass, viscousFriction, gravity, linearized);
+    }
+
+    /**
+     * The model the controller gains are computed from, which is the nominal plant if this one has been perturbed away
+     * from it
+     */
+    public PendulumModel createControllerModel()
+    {
+        return nominal != null ? nominal.createPendulumModel() : createPendulumModel();
+    }
+
+    /**
+     * A new instance of the controller this config describes, clamped to the max torque output. State feedback
+     * overrides PID when both are on.
+     */
+    public Controller createController()
+    {
+        Controller controller;
+        if (useEigenvaluePlacement || useLqr)
+        {
+            controller = new StateFeedbackController(StateFeedbackController.getKMatrix(this, createControllerModel()));
+        } else if (usePid)
+        {
+            PidController pid = new PidController(kp, ki, kd);
+            controller = useAntiWindup ? new AntiWindupController(pid, maxTorqueOutput) : pid;
+        } else
+        {
+            controller = (theta, thetaDot) -> 0.0;
+        }
+
+        return new SaturatedController(controller, maxTorqueOutput);
+    }
+
+    public Integrator createIntegrator()
+    {
+        switch (integrator)
+        {
+            case DORMAND_PRINCE:
+                // Steps never need to be longer than the gap between samples, since integration stops at each one
+                return new DormandPrinceIntegrator(absoluteTolerance, relativeTolerance, dtS,
+                        Constants.nanosecondsToSeconds(saveStateEveryXNs));
+            case ZERO_ORDER_HOLD:
+                return new ZeroOrderHoldIntegrator(createPendulumModel(), dtS);
+            case RK4:
+            default:
+                return new Rk4Integrator(dtS);
+        }
+    }
+
+    /**
+     * The number of samples a run of this config saves, one every saveStateEveryXNs
+     */
+    public int getSampleCount()
+    {
+        // Every multiple of saveStateEveryXNs below the timespan gets hit when the step divides it evenly
+        if (saveStateEveryXNs % dtNs == 0)
+            return (int) ((timespanNs + saveStateEveryXNs - 1) / saveStateEveryXNs);
+
+        int sampleCount = 0;
+        for (long t = 0; t < timespanNs; t += dtNs)
+        {
+            if (t % saveStateEveryXNs == 0)
+                ++sampleCount;
+        }
+        return sampleCount;
+    }
+
+    /**
+     * SHA-256 of every value a run of this config and its {@link RunSummary} depend on, in hex. Configs that simulate
+     * or summarize differently never share a hash, so it can be used to look up stored results. A new field has to be
+     * added to it too.
+     */
+    public String getHash()
+    {
+        Hasher hasher = new Hasher();
+        addTo(hasher);
+        // Not part of the config, but they decide the settling time and whether it fell
+        hasher.add(Constants.SETTLED_THETA_TOLERANCE).add(Constants.FALLEN_THETA);
+        return hasher.toHex();
+    }
+
+    private void addTo(Hasher hasher)
+    {
+        hasher.add(linearized);
+
+        hasher.add(usePid).add(useEigenvaluePlacement).add(kp).add(ki).add(kd).add(useAntiWindup);
+        hasher.add(eigenvalue1).add(eigenvalue2);
+        hasher.add(useLqr).add(lqrThetaWeight).add(lqrThetaDotWeight).add(lqrTorqueWeight);
+        hasher.add(maxTorqueOutput);
+
+        hasher.add(includePerturbations);
+        hasher.add(perturbations.size());
+        for (Perturbation perturbation : perturbations)
+            hasher.add(perturbation.time).add(perturbation.force).add(perturbation.duration);
+
+        // Generators go in as the perturbations they generate during the run, which is all of them that matters
+        hasher.add(perturbationGenerators.size());
+        for (PerturbationGenerator generator : perturbationGenerators)
+        {
+            for (Perturbation perturbation : generator)
+            {
+                if (perturbation.time >= timespanNs)
+                    break;
+
+                hasher.add(true).add(perturbation.time).add(perturbation.force).add(perturbation.duration);
+            }
+            hasher.add(false);
+        }
+
+        hasher.add(timespanNs).add(saveStateEveryXNs).add(dtNs);
+        hasher.add(integrator.name()).add(absoluteTolerance).add(relativeTolerance);
+        hasher.add(initialTheta).add(initialThetaDot);
+        hasher.add(pendulumWidth).add(pendulumLength).add(pendulumMass).add(viscousFriction).add(gravity);
+
+        hasher.add(nominal != null);
+        if (nominal != null)
+            nominal.addTo(hasher);
+    }
+
+    public Builder toBuilder()
+    {
+        return new Builder(this);
+    }
+
+    /**
+     * Feeds values into a SHA-256 digest as fixed size big endian bytes, so no two sequences of values run together
+     */
+    private static class Hasher
+    {
+        private final MessageDigest mDigest;
+        private final ByteBuffer mBuffer = ByteBuffer.allocate(Long.BYTES);
+
+        Hasher()
+        {
+            try
+            {
+                mDigest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e)
+            {
+                // Every Java platform has to support it
+                throw new IllegalStateException(e);
+            }
+        }
+
+        Hasher add(long value)
+        {
+            mBuffer.clear();
+            mDigest.update(mBuffer.putLong(value).array());
+            return this;
+        }
+
+        Hasher add(double value)
+        {
+            return add(Double.doubleToLongBits(value));
+        }
+
+        Hasher add(boolean value)
+        {
+            return add(value ? 1L : 0L);
+        }
+
+        Hasher add(String value)
+        {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            add(bytes.length);
+            mDigest.update(bytes);
+            return this;
+        }
+
+        String toHex()
+        {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : mDigest.digest())
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+
+            return hex.toString();
+        }
+    }
+
+    public static class Builder
+    {
+        private boolean mLinearized = Constants.LINEARIZED;
+
+        private boolean mUsePid = Constants.USE_PID;
+        private boolean mUseEigenvaluePlacement = Constants.USE_EIGENVALUE_PLACEMENT;
+        private double mKp = Constants.KP;
+        private double mKi = Constants.KI;
+        private double mKd = Constants.KD;
+        private boolean mUseAntiWindup = Constants.USE_ANTI_WINDUP;
+        private double mEigenvalue1 = Constants.EIGENVALUE_1;
+        private double mEigenvalue2 = Constants.EIGENVALUE_2;
+        private boolean mUseLqr = Constants.USE_LQR;
+        private double mLqrThetaWeight = Constants.LQR_THETA_WEIGHT;
+        private double mLqrThetaDotWeight = Constants.LQR_THETA_DOT_WEIGHT;
+        private double mLqrTorqueWeight = Constants.LQR_TORQUE_WEIGHT;
+        private double mMaxTorqueOutput = Constants.MAX_TORQUE_OUTPUT;
+
+        private boolean mIncludePerturbations = Constants.INCLUDE_PERTURBATIONS;
+        private List<Perturbation> mPerturbations = Constants.PERTURBATIONS;
+        private List<PerturbationGenerator> mPerturbationGenerators = Constants.PERTURBATION_GENERATORS;
+
+        private long mTimespanNs = Constants.TIMESPAN;
+        private long mSaveStateEveryXNs = Constants.SAVE_STATE_EVERY_X_NS;
+        private long mDtNs = Constants.DT_NS;
+
+        private Integrator.Type mIntegrator = Constants.INTEGRATOR;
+        private double mAbsoluteTolerance = Constants.ABSOLUTE_TOLERANCE;
+        private double mRelativeTolerance = Constants.RELATIVE_TOLERANCE;
+
+        private double mInitialTheta = Constants.INITIAL_STATE.get(0, 0);
+        private double mInitialThetaDot = Constants.INITIAL_STATE.get(0, 1);
+
+        private double mPendulumWidth = Constants.PENDULUM_WIDTH;
+        private double mPendulumLength = Constants.PENDULUM_LENGTH;
+        private double mPendulumMass = Constants.PENDULUM_MASS;
+        private double mViscousFriction = Constants.VISCOUS_FRICTION;
+        private double mGravity = Constants.GRAVITY;
+
+        private SimulationConfig mNominal = null;
+
+        public Builder()
+        {
+        }
+
+        private Builder(SimulationConfig config)
+        {
+            mLinearized = config.linearized;
+            mUsePid = config.usePid;
+            mUseEigenvaluePlacement = config.useEigenvaluePlacement;
+            mKp = config.kp;
+            mKi = config.ki;
+            mKd = config.kd;
+            mUseAntiWindup = config.useAntiWindup;
+            mEigenvalue1 = config.eigenvalue1;
+            mEigenvalue2 = config.eigenvalue2;
+            mUseLqr = config.useLqr;
+            mLqrThetaWeight = config.lqrThetaWeight;
+            mLqrThetaDotWeight = config.lqrThetaDotWeight;
+            mLqrTorqueWeight = config.lqrTorqueWeight;
+            mMaxTorqueOutput = config.maxTorqueOutput;
+            mIncludePerturbations = config.includePerturbations;
+            mPerturbations = config.perturbations;
+            mPerturbationGenerators = config.perturbationGenerators;
+            mTimespanNs = config.timespanNs;
+            mSaveStateEveryXNs = config.saveStateEveryXNs;
+            mDtNs = config.dtNs;
+            mIntegrator = config.integrator;
+            mAbsoluteTolerance = config.absoluteTolerance;
+            mRelativeTolerance = config.relativeTolerance;
+            mInitialTheta = config.initialTheta;
+            mInitialThetaDot = config.initialThetaDot;
+            mPendulumWidth = config.pendulumWidth;
+            mPendulumLength = config.pendulumLength;
+            mPendulumMass = config.pendulumMass;
+            mViscousFriction = config.viscousFriction;
+            mGravity = config.gravity;
+            mNominal = config.nominal;
+        }
+
+        public Builder setLinearized(boolean linearized)
+        {
+            mLinearized = linearized;
+            return this;
+        }
+
+        public Builder setUsePid(boolean usePid)
+        {
+            mUsePid = usePid;
+            return this;
+        }
+
+        public Builder setUseEigenvaluePlacement(boolean useEigenvaluePlacement)
+        {
+            mUseEigenvaluePlacement = useEigenvaluePlacement;
+            return this;
+        }
+
+        public Builder setKp(double kp)
+        {
+            mKp = kp;
+            return this;
+        }
+
+        public Builder setKi(double ki)
+        {
+            mKi = ki;
+            return this;
+        }
+
+        public Builder setKd(double kd)
+        {
+            mKd = kd;
+            return this;
+        }
+
+        public Builder setUseAntiWindup(boolean useAntiWindup)
+        {
+            mUseAntiWindup = useAntiWindup;
+            return this;
+        }
+
+        public Builder setEigenvalue1(double eigenvalue1)
+        {
+            mEigenvalue1 = eigenvalue1;
+            return this;
+        }
+
+        public Builder setEigenvalue2(double eigenvalue2)
+        {
+            mEigenvalue2 = eigenvalue2;
+            return this;
+        }
+
+        public Builder setUseLqr(boolean useLqr)
+        {
+            mUseLqr = useLqr;
+            return this;
+        }
+
+        public Builder setLqrThetaWeight(double lqrThetaWeight)
+        {
+            mLqrThetaWeight = lqrThetaWeight;
+            return this;
+        }
+
+        public Builder setLqrThetaDotWeight(double lqrThetaDotWeight)
+        {
+            mLqrThetaDotWeight = lqrThetaDotWeight;
+            return this;
+        }
+
+        public Builder setLqrTorqueWeight(double lqrTorqueWeight)
+        {
+            mLqrTorqueWeight = lqrTorqueWeight;
+            return this;
+        }
+
+        public Builder setMaxTorqueOutput(double maxTorqueOutput)
+        {
+            mMaxTorqueOutput = maxTorqueOutput;
+            return this;
+        }
+
+        public Builder setIncludePerturbations(boolean includePerturbations)
+        {
+            mIncludePerturbations = includePerturbations;
+            return this;
+        }
+
+        public Builder setPerturbations(List<Perturbation> perturbations)
+        {
+            mPerturbations = perturbations;
+            return this;
+        }
+
+        public Builder setPerturbationGenerators(List<PerturbationGenerator> perturbationGenerators)
+        {
+            mPerturbationGenerators = perturbationGenerators;
+            return this;
+        }
+
+        public Builder setTimespanNs(long timespanNs)
+        {
+            mTimespanNs = timespanNs;
+            return this;
+        }
+
+        public Builder setSaveStateEveryXNs(long saveStateEveryXNs)
+        {
+            mSaveStateEveryXNs = saveStateEveryXNs;
+            return this;
+        }
+
+        public Builder setDtNs(long dtNs)
+        {
+            mDtNs = dtNs;
+            return this;
+        }
+
+        public Builder setIntegrator(Integrator.Type integrator)
+        {
+            mIntegrator = integrator;
+            return this;
+        }
+
+        public Builder setTolerances(double absoluteTolerance, double relativeTolerance)
+        {
+            mAbsoluteTolerance = absoluteTolerance;
+            mRelativeTolerance = relativeTolerance;
+            return this;
+        }
+
+        public Builder setInitialState(double theta, double thetaDot)
+        {
+            mInitialTheta = theta;
+            mInitialThetaDot = thetaDot;
+            return this;
+        }
+
+        public Builder setPendulumWidth(double pendulumWidth)
+        {
+            mPendulumWidth = pendulumWidth;
+            return this;
+        }
+
+        public Builder setPendulumLength(double pendulumLength)
+        {
+            mPendulumLength = pendulumLength;
+            return this;
+        }
+
+        public Builder setPendulumMass(double pendulumMass)
+        {
+            mPendulumMass = pendulumMass;
+            return this;
+        }
+
+        public Builder setViscousFriction(double viscousFriction)
+        {
+            mViscousFriction = viscousFriction;
+            return this;
+        }
+
+        public Builder setGravity(double gravity)
+        {
+            mGravity = gravity;
+            return this;
+        }
+
+        /**
+         * Designs the controller for the plant in nominal while simulating the plant set on this builder, to see how
+         * the controller copes with a plant that isn't what it expects
+         */
+        public Builder setNominal(SimulationConfig nominal)
+        {
+            mNominal = nominal;
+            return this;
+        }
+
+        public SimulationConfig build()
+        {
+            return new SimulationConfig(this);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package root;
+
+/**
+ * The samples saved by a {@link Simulator} run, one every saveStateEveryXNs of the config. The state at sample i is
+ * the state after the integration step that started at i * saveStateEveryXNs, and the torque is the controller output
+ * for that step before perturbations are added.
+ */
+public class SimulationResult
+{
+    private final SimulationConfig mConfig;
+    private final RunSummary mSummary;
+    private final Trajectory mTrajectory;
+
+    public SimulationResult(SimulationConfig config, Trajectory trajectory)
+    {
+        this(config, trajectory, new RunSummary());
+    }
+
+    SimulationResult(SimulationConfig config, Trajectory trajectory, RunSummary summary)
+    {
+        mConfig = config;
+        mSummary = summary;
+        mTrajectory = trajectory;
+    }
+
+    public SimulationConfig getConfig()
+    {
+        return mConfig;
+    }
+
+    public RunSummary getSummary()
+    {
+        return mSummary;
+    }
+
+    public Trajectory getTrajectory()
+    {
+        return mTrajectory;
+    }
+
+    public long getSampleTimeNs(int sample)
+    {
+        return sample * mConfig.saveStateEveryXNs;
+    }
+
+    /**
+     * The sample saved at or just before timeNs
+     */
+    public int getSampleAt(long timeNs)
+    {
+        return (int) (timeNs / mConfig.saveStateEveryXNs);
+    }
+}
@@ -0,0 +1,246 @@
+package root;
+
+/**
+ * One closed loop simulation of a config that's advanced a sample at a time, so it can be stopped anywhere, saved to a
+ * {@link Checkpoint} and picked up again later. Restoring a checkpoint and advancing gives exactly the same samples as
+ * the original run did from that point.
+ */
+public class SimulationRun
+{
+    /**
+     * Everything a run carries from one sample to the next. The perturbation schedule isn't in it, since which
+     * perturbations are active only depends on the time.
+     */
+    public static class Checkpoint
+    {
+        final int nextSample;
+        final long timeNs;
+        final double adaptiveTime;
+        final double theta;
+        final double thetaDot;
+        final double[] controllerState;
+        final double integratorStepSize;
+
+        private Checkpoint(SimulationRun run)
+        {
+            nextSample = run.mNextSample;
+            timeNs = run.mTimeNs;
+            adaptiveTime = run.mAdaptiveTime;
+            theta = run.mPendulumModel.getTheta();
+            thetaDot = run.mPendulumModel.getThetaDot();
+            Controller controller = run.mClosedLoopTorque.getController();
+            controllerState = new double[controller.getStateSize()];
+            controller.saveState(controllerState, 0);
+            integratorStepSize = run.mIntegrator.getNextStepSize();
+        }
+
+        /**
+         * The sample that advancing from this checkpoint saves first
+         */
+        public int getNextSample()
+        {
+            return nextSample;
+        }
+    }
+
+    private final SimulationConfig mConfig;
+    private final int mSampleCount;
+
+    private final PendulumModel mPendulumModel;
+    private final ClosedLoopTorque mClosedLoopTorque;
+    private final PerturbationSchedule mPerturbationSchedule;
+    private final Integrator mIntegrator;
+    private final HeldTorque mHeldTorque = new HeldTorque();
+
+    private int mNextSample = 0;
+    // The start of the next step for the fixed step integrator and the time integrated up to for the adaptive one
+    private long mTimeNs = 0;
+    private double mAdaptiveTime = 0.0;
+
+    public SimulationRun(SimulationConfig config)
+    {
+        mConfig = config;
+        mSampleCount = config.getSampleCount();
+
+        mPendulumModel = config.createPendulumModel();
+        mPendulumModel.setState(config.initialTheta, config.initialThetaDot);
+
+        mClosedLoopTorque = new ClosedLoopTorque(config.createController());
+        mPerturbationSchedule = PerturbationSchedule.fromConfig(config);
+        mIntegrator = config.createIntegrator();
+    }
+
+    public SimulationConfig getConfig()
+    {
+        return mConfig;
+    }
+
+    public int getNextSample()
+    {
+        return mNextSample;
+    }
+
+    public boolean hasNextSample()
+    {
+        return mNextSample < mSampleCount;
+    }
+
+    public Checkpoint checkpoint()
+    {
+        return new Checkpoint(this);
+    }
+
+    /**
+     * Goes back or forward to a checkpoint taken from a run of the same config
+     */
+    public void restore(Checkpoint checkpoint)
+    {
+        mNextSample = checkpoint.nextSample;
+        mTimeNs = checkpoint.timeNs;
+        mAdaptiveTime = checkpoint.adaptiveTime;
+        mPendulumModel.setState(checkpoint.theta, checkpoint.thetaDot);
+        mClosedLoopTorque.getController().restoreState(checkpoint.controllerState, 0);
+        mIntegrator.setNextStepSize(checkpoint.integratorStepSize);
+        mPerturbationSchedule.reset();
+    }
+
+    /**
+     * Simulates up to and including the next sample and hands it to listener, which can be null. Once every sample has
+     * been saved it simulates whatever is left of the timespan and returns false.
+     */
+    public boolean advance(SampleListener listener, RunSummary summary)
+    {
+        if (mConfig.integrator.isAdaptive())
+            return advanceAdaptive(listener, summary);
+        else
+            return advanceFixedStep(listener, summary);
+    }
+
+    /**
+     * The controller runs once every dt and its output is held for the whole step
+     */
+    private boolean advanceFixedStep(SampleListener listener, RunSummary summary)
+    {
+        while (mTimeNs < mConfig.timespanNs)
+        {
+            long t = mTimeNs;
+            long stepStartTime = Metrics.startStep();
+
+            mPendulumModel.boundTheta();
+            double theta = mPendulumModel.getTheta();
+            double thetaDot = mPendulumModel.getThetaDot();
+
+            mClosedLoopTorque.advanceController(theta, thetaDot, mConfig.dtS);
+
+            double inputTorque = mClosedLoopTorque.getControllerTorque(theta, thetaDot);
+
+            summary.update(Constants.nanosecondsToSeconds(t), theta, mClosedLoopTorque.isSaturated());
+
+            double savedTorque = inputTorque;
+
+            inputTorque = mPerturbationSchedule.addActiveForces(t, inputTorque);
+
+            /*
+            The system is time-invariant, so the only parameters for the functions should be the state of the system
+
+            y(x) represents the system
+            f(y) represents the derivative of the system
+
+            Begin at y_0, the initial conditions of the system, which will mutate themselves during the calculations
+
+            k_1 = f(y(now))
+            k_2 = f(y(now) + step * k_1 / 2)
+            k_3 = f(y(now) + step * k_2 / 2)
+            k_4 = f(y(now) + step * k_3)
+
+            y(next) = y(now) + 1/6 * step * (k_1 + 2k_2 + 2k_3 + k4)
+            t(next) = t(now) + step
+
+            Save a copy of the state
+            Mutate the state
+            Continue until we've elapsed enough time
+            */
+
+            mHeldTorque.torque = inputTorque;
+            summary.addDerivativeEvaluations(mIntegrator.advance(mPendulumModel, mHeldTorque, mConfig.dtS));
+
+            mTimeNs = t + mConfig.dtNs;
+            Metrics.recordStepTime(stepStartTime);
+
+            if (t % mConfig.saveStateEveryXNs == 0)
+            {
+                if (listener != null)
+                {
+                    listener.onSample(mNextSample, Constants.nanosecondsToSeconds(t), mPendulumModel.getTheta(),
+                            mPendulumModel.getThetaDot(), savedTorque);
+                }
+
+                Metrics.increment(Metrics.Counter.SAMPLES_SAVED);
+                ++mNextSample;
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * The controller acts continuously and the integrator picks its own steps. Integration stops exactly at every
+     * sample time and at every perturbation start and end, so the perturbation torque is constant over each segment.
+     * To line up with the fixed step samples, sample i is taken at i * saveStateEveryXNs + dtNs. The controller's state
+     * and the run summary are updated once per sample.
+     */
+    private boolean advanceAdaptive(SampleListener listener, RunSummary summary)
+    {
+        if (!hasNextSample())
+            return false;
+
+        int sample = mNextSample;
+        double samplePeriodS = Constants.nanosecondsToSeconds(mConfig.saveStateEveryXNs);
+        double sampleTime = (double) sample * mConfig.saveStateEveryXNs + mConfig.dtNs;
+
+        while (mAdaptiveTime < sampleTime)
+        {
+            long stepStartTime = Metrics.startStep();
+
+            // Nothing starts or ends inside the segment, so the perturbation torque is constant over it
+            double segmentEnd = Math.min(sampleTime, mPerturbationSchedule.getNextEventTime(mAdaptiveTime));
+            mClosedLoopTorque.perturbationTorque = mPerturbationSchedule.getForceAfter(mAdaptiveTime);
+
+            summary.addDerivativeEvaluations(mIntegrator.advance(mPendulumModel, mClosedLoopTorque,
+                    Constants.nanosecondsToSeconds(segmentEnd - mAdaptiveTime)));
+            mAdaptiveTime = segmentEnd;
+            Metrics.recordStepTime(stepStartTime);
+        }
+
+        mPendulumModel.boundTheta();
+        double theta = mPendulumModel.getTheta();
+        double thetaDot = mPendulumModel.getThetaDot();
+
+        mClosedLoopTorque.advanceController(theta, thetaDot, samplePeriodS);
+
+        double controllerTorque = mClosedLoopTorque.getControllerTorque(theta, thetaDot);
+        summary.update(Constants.nanosecondsToSeconds(sampleTime), theta, mClosedLoopTorque.isSaturated());
+
+        if (listener != null)
+        {
+            listener.onSample(sample, Constants.nanosecondsToSeconds(sample * mConfig.saveStateEveryXNs), theta,
+                    thetaDot, controllerTorque);
+        }
+
+        Metrics.increment(Metrics.Counter.SAMPLES_SAVED);
+        ++mNextSample;
+        return true;
+    }
+
+    private static class HeldTorque implements TorqueSource
+    {
+        double torque;
+
+        @Override
+        public double getTorque(double theta, double thetaDot)
+        {
+            return torque;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package root;
+
+/**
+ * Runs the closed loop simulation without anything from JavaFX, so it can be used headless.
+ * <p>
+ * With a {@link ResultCache}, configs that have been run before are replayed from the cache instead, and every other
+ * run and stream is written to it as it goes. Summaries are looked up but never stored, since storing them would mean
+ * storing the samples that {@link #summarize} exists to skip.
+ */
+public class Simulator
+{
+    private final ResultCache mCache;
+
+    public Simulator()
+    {
+        this(null);
+    }
+
+    /**
+     * A simulator that uses cache, which can be null to always simulate
+     */
+    public Simulator(ResultCache cache)
+    {
+        mCache = cache;
+    }
+
+    public SimulationResult run(SimulationConfig config)
+    {
+        return run(config, new Trajectory(Math.max(1, config.getSampleCount())));
+    }
+
+    /**
+     * Runs the config saving samples into the given trajectory, which can be a ring to bound memory on long runs
+     */
+    public SimulationResult run(SimulationConfig config, Trajectory trajectory)
+    {
+        return run(config, trajectory, null);
+    }
+
+    /**
+     * Like {@link #run(SimulationConfig, Trajectory)} but every sample also goes to listener as soon as it's saved
+     */
+    public SimulationResult run(SimulationConfig config, Trajectory trajectory, SampleListener listener)
+    {
+        SampleListener sink = listener == null ? trajectory : SampleListener.of(trajectory, listener);
+
+        RunSummary cached = getCached(config, sink);
+        if (cached != null)
+            return new SimulationResult(config, trajectory, cached);
+
+        SimulationResult result = new SimulationResult(config, trajectory);
+        simulateAndStore(config, sink, result.getSummary());
+        if (mCache != null)
+            mCache.put(result);
+
+        return result;
+    }
+
+    /**
+     * Runs the config handing every sample to listener instead of keeping them, so memory doesn't grow with the run
+     */
+    public RunSummary stream(SimulationConfig config, SampleListener listener)
+    {
+        RunSummary cached = getCached(config, listener);
+        if (cached != null)
+            return cached;
+
+        RunSummary summary = new RunSummary();
+        simulateAndStore(config, listener, summary);
+        return summary;
+    }
+
+    /**
+     * Runs the config without saving any samples, for when only the metrics are needed
+     */
+    public RunSummary summarize(SimulationConfig config)
+    {
+        RunSummary cached = getCached(config, null);
+        if (cached != null)
+            return cached;
+
+        RunSummary summary = new RunSummary();
+        simulate(config, null, summary);
+        return summary;
+    }
+
+    private RunSummary getCached(SimulationConfig config, SampleListener listener)
+    {
+        return mCache == null ? null : mCache.replay(config, listener);
+    }
+
+    private void simulateAndStore(SimulationConfig config, SampleListener listener, RunSummary summary)
+    {
+        if (mCache == null)
+        {
+            simulate(config, listener, summary);
+            return;
+        }
+
+        try (ResultCache.Writer writer = mCache.write(config))
+        {
+            simulate(config, SampleListener.of(listener, writer), summary);
+            writer.commit(summary);
+        }
+    }
+
+    private void simulate(SimulationConfig config, SampleListener listener, RunSummary summary)
+    {
+        SimulationRun run = new SimulationRun(config);
+        while (run.advance(listener, summary))
+        {
+            // Every sample has already gone to the listener
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package root;
+
+/**
+ * u = -Kx for a K from eigenvalue placement or LQR. It has no state of its own.
+ */
+public class StateFeedbackController implements Controller
+{
+    private final double mThetaGain;
+    private final double mThetaDotGain;
+
+    public StateFeedbackController(double thetaGain, double thetaDotGain)
+    {
+        mThetaGain = thetaGain;
+        mThetaDotGain = thetaDotGain;
+    }
+
+    /**
+     * The gains from a 1x2 K matrix, pulled out once since the feedback law only ever touches the two state variables
+     */
+    public StateFeedbackController(Matrix kMatrix)
+    {
+        this(kMatrix.get(0, 0), kMatrix.get(1, 0));
+    }
+
+    /**
+     * The gains from LQR if it's on in config, otherwise from eigenvalue placement
+     */
+    public static Matrix getKMatrix(SimulationConfig config, PendulumModel pendulumModel)
+    {
+        if (config.useLqr)
+            return pendulumModel.getLqrKMatrix(config.lqrThetaWeight, config.lqrThetaDotWeight, config.lqrTorqueWeight);
+
+        return pendulumModel.getEigenvaluePlacementKMatrix(config.eigenvalue1, config.eigenvalue2);
+    }
+
+    public double getThetaGain()
+    {
+        return mThetaGain;
+    }
+
+    public double getThetaDotGain()
+    {
+        return mThetaDotGain;
+    }
+
+    @Override
+    public double getTorque(double theta, double thetaDot)
+    {
+        // Same order of operations as -kMatrix.multiply(state) so the results match it exactly
+        return -(0.0 + mThetaGain * theta + mThetaDotGain * thetaDot);
+    }
+}
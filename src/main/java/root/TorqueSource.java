@@ -0,0 +1,10 @@
+package root;
+
+/**
+ * The torque applied to the pendulum as a function of its state, for integrators to evaluate at their intermediate
+ * stages
+ */
+public interface TorqueSource
+{
+    double getTorque(double theta, double thetaDot);
+}
@@ -0,0 +1,168 @@
+package root;
+
+import java.util.Arrays;
+
+/**
+ * Saved samples stored column by column in primitive arrays, indexed by sample number. In ring mode only the most
+ * recent capacity samples are kept, so memory stays fixed however long the run is.
+ * <p>
+ * Theta is also stored unwrapped, continuous from the first sample added however many times the pendulum has gone
+ * round, which is worked out as each sample is added.
+ */
+public class Trajectory implements SampleListener
+{
+    private final boolean mRing;
+
+    private double[] mTime;
+    private double[] mTheta;
+    private double[] mUnwrappedTheta;
+    private double[] mThetaDot;
+    private double[] mTorque;
+
+    // The number of samples ever added, the newest one is mEndSample - 1
+    private int mEndSample = 0;
+    private final AngleUnwrapper mUnwrapper = new AngleUnwrapper();
+
+    private Trajectory(int capacity, boolean ring)
+    {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity must be at least 1, got " + capacity);
+
+        mRing = ring;
+        mTime = new double[capacity];
+        mTheta = new double[capacity];
+        mUnwrappedTheta = new double[capacity];
+        mThetaDot = new double[capacity];
+        mTorque = new double[capacity];
+    }
+
+    /**
+     * A trajectory that keeps every sample and grows past initialCapacity if it needs to
+     */
+    public Trajectory(int initialCapacity)
+    {
+        this(initialCapacity, false);
+    }
+
+    /**
+     * A trajectory that only keeps the last capacity samples, overwriting the oldest ones
+     */
+    public static Trajectory ring(int capacity)
+    {
+        return new Trajectory(capacity, true);
+    }
+
+    public void add(double time, double theta, double thetaDot, double torque)
+    {
+        if (!mRing && mEndSample == mTime.length)
+            grow();
+
+        int index = mRing ? mEndSample % mTime.length : mEndSample;
+        mTime[index] = time;
+        mTheta[index] = theta;
+        mUnwrappedTheta[index] = mUnwrapper.unwrap(theta);
+        mThetaDot[index] = thetaDot;
+        mTorque[index] = torque;
+        ++mEndSample;
+    }
+
+    @Override
+    public void onSample(int sample, double time, double theta, double thetaDot, double torque)
+    {
+        add(time, theta, thetaDot, torque);
+    }
+
+    public boolean isRing()
+    {
+        return mRing;
+    }
+
+    public int getCapacity()
+    {
+        return mTime.length;
+    }
+
+    /**
+     * The oldest sample still stored, always 0 unless the ring has wrapped around
+     */
+    public int getStartSample()
+    {
+        return mRing ? Math.max(0, mEndSample - mTime.length) : 0;
+    }
+
+    /**
+     * One past the newest sample, which is also the number of samples ever added
+     */
+    public int getEndSample()
+    {
+        return mEndSample;
+    }
+
+    public int size()
+    {
+        return mEndSample - getStartSample();
+    }
+
+    /**
+     * The bytes taken up by the sample arrays
+     */
+    public long getMemoryBytes()
+    {
+        return (long) mTime.length * 5 * Double.BYTES;
+    }
+
+    public boolean contains(int sample)
+    {
+        return sample >= getStartSample() && sample < mEndSample;
+    }
+
+    public double getTime(int sample)
+    {
+        return mTime[getIndex(sample)];
+    }
+
+    public double getTheta(int sample)
+    {
+        return mTheta[getIndex(sample)];
+    }
+
+    public double getUnwrappedTheta(int sample)
+    {
+        return mUnwrappedTheta[getIndex(sample)];
+    }
+
+    public double getThetaDot(int sample)
+    {
+        return mThetaDot[getIndex(sample)];
+    }
+
+    public double getTorque(int sample)
+    {
+        return mTorque[getIndex(sample)];
+    }
+
+    public void clear()
+    {
+        mEndSample = 0;
+        mUnwrapper.reset();
+    }
+
+    private int getIndex(int sample)
+    {
+        if (!contains(sample))
+            throw new IndexOutOfBoundsException("Sample " + sample + " is not stored, stored samples are "
+                    + getStartSample() + " to " + (mEndSample - 1));
+
+        return mRing ? sample % mTime.length : sample;
+    }
+
+    private void grow()
+    {
+        int capacity = mTime.length * 2;
+        mTime = Arrays.copyOf(mTime, capacity);
+        mTheta = Arrays.copyOf(mTheta, capacity);
+        mUnwrappedTheta = Arrays.copyOf(mUnwrappedTheta, capacity);
+        mThetaDot = Arrays.copyOf(mThetaDot, capacity);
+        mTorque = Arrays.copyOf(mTorque, capacity);
+    }
+}
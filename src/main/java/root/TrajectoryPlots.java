@@ -0,0 +1,60 @@
+package root;
+
+import java.io.IOException;
+
+/**
+ * Plots of theta and the controller torque built up while a run saves its samples, so a run of any length can be
+ * plotted without keeping its trajectory
+ */
+public class TrajectoryPlots implements SampleListener
+{
+    private final LinePlot mThetaPlot;
+    private final LinePlot mTorquePlot;
+
+    private final AngleUnwrapper mUnwrapper = new AngleUnwrapper();
+
+    public TrajectoryPlots(int sampleCount, double samplePeriodS, int width, int height)
+    {
+        double endTime = Math.max(0, sampleCount - 1) * samplePeriodS;
+        mThetaPlot = new LinePlot("Theta", 0.0, endTime, sampleCount, width, height);
+        mTorquePlot = new LinePlot("Input Torque", 0.0, endTime, sampleCount, width, height);
+    }
+
+    /**
+     * Plots for every sample a run of config saves
+     */
+    public static TrajectoryPlots forConfig(SimulationConfig config)
+    {
+        return new TrajectoryPlots(config.getSampleCount(), Constants.nanosecondsToSeconds(config.saveStateEveryXNs),
+                Constants.PLOT_WIDTH, Constants.PLOT_HEIGHT);
+    }
+
+    @Override
+    public void onSample(int sample, double time, double theta, double thetaDot, double torque)
+    {
+        if (Constants.UNWRAP_THETA)
+            theta = mUnwrapper.unwrap(theta);
+
+        mThetaPlot.getSeries().add(theta);
+        mTorquePlot.getSeries().add(torque);
+    }
+
+    public LinePlot getThetaPlot()
+    {
+        return mThetaPlot;
+    }
+
+    public LinePlot getTorquePlot()
+    {
+        return mTorquePlot;
+    }
+
+    /**
+     * Writes theta.extension and torque.extension, where extension is png or svg
+     */
+    public void write(String extension) throws IOException
+    {
+        mThetaPlot.write("theta." + extension);
+        mTorquePlot.write("torque." + extension);
+    }
+}
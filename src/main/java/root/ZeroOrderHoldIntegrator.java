@@ -0,0 +1,102 @@
+package root;
+
+/**
+ * Exact steps of the linearized model with the torque held over each step, the same way {@link Rk4Integrator} holds
+ * it. Over a step of length h the state goes to Phi * x + Gamma * u, where Phi = e^(A h) and Gamma is the integral of
+ * e^(A s) B for s from 0 to h. Both come out of the exponential of the augmented matrix [A B; 0 0] * h, which is
+ * computed once for the step size, so a step costs one torque evaluation and six multiplications however long it is.
+ */
+public class ZeroOrderHoldIntegrator implements Integrator
+{
+    /**
+     * Phi and Gamma for one step length
+     */
+    private static class Discretization
+    {
+        final double stepSize;
+        final double thetaFromTheta;
+        final double thetaFromThetaDot;
+        final double thetaFromTorque;
+        final double thetaDotFromTheta;
+        final double thetaDotFromThetaDot;
+        final double thetaDotFromTorque;
+
+        Discretization(Matrix augmented, double stepSize)
+        {
+            this.stepSize = stepSize;
+
+            // Columns 0 and 1 of the top two rows are Phi, column 2 is Gamma
+            Matrix exponential = augmented.multiply(stepSize).exponential();
+            thetaFromTheta = exponential.get(0, 0);
+            thetaFromThetaDot = exponential.get(1, 0);
+            thetaFromTorque = exponential.get(2, 0);
+            thetaDotFromTheta = exponential.get(0, 1);
+            thetaDotFromThetaDot = exponential.get(1, 1);
+            thetaDotFromTorque = exponential.get(2, 1);
+        }
+    }
+
+    private final Matrix mAugmented;
+    private final Discretization mStep;
+    // The last step length that wasn't the step size, from a duration that isn't a whole number of steps
+    private Discretization mOtherStep;
+
+    public ZeroOrderHoldIntegrator(PendulumModel model, double stepSize)
+    {
+        if (!model.isLinearized())
+            throw new IllegalArgumentException("Zero order hold needs the linearized model");
+
+        Matrix aMatrix = model.getAMatrix();
+        Matrix bMatrix = model.getBMatrix();
+
+        mAugmented = new Matrix(3, 3);
+        for (int row = 0; row < 2; ++row)
+        {
+            mAugmented.set(0, row, aMatrix.get(0, row));
+            mAugmented.set(1, row, aMatrix.get(1, row));
+            mAugmented.set(2, row, bMatrix.get(0, row));
+        }
+
+        mStep = new Discretization(mAugmented, stepSize);
+        mOtherStep = mStep;
+    }
+
+    @Override
+    public int advance(PendulumModel model, TorqueSource torqueSource, double duration)
+    {
+        // Split up the same way as RK4 so the torque is evaluated at the same times
+        int steps = Math.max(1, (int) Math.ceil(duration / mStep.stepSize - 1e-9));
+        double stepSize = steps == 1 ? duration : duration / steps;
+        Discretization step = getDiscretization(stepSize);
+
+        double theta = model.getTheta();
+        double thetaDot = model.getThetaDot();
+        for (int i = 0; i < steps; ++i)
+        {
+            double torque = torqueSource.getTorque(theta, thetaDot);
+
+            // Plain multiply and add, Math.fma falls back to a very slow software version on CPUs without FMA
+            double newTheta = step.thetaFromTheta * theta + step.thetaFromThetaDot * thetaDot
+                    + step.thetaFromTorque * torque;
+            thetaDot = step.thetaDotFromTheta * theta + step.thetaDotFromThetaDot * thetaDot
+                    + step.thetaDotFromTorque * torque;
+            theta = newTheta;
+        }
+        model.setState(theta, thetaDot);
+
+        Metrics.add(Metrics.Counter.INTEGRATOR_STEPS, steps);
+        // The derivative is never evaluated
+        return 0;
+    }
+
+    private Discretization getDiscretization(double stepSize)
+    {
+        if (stepSize == mStep.stepSize)
+            return mStep;
+
+        if (stepSize != mOtherStep.stepSize)
+            mOtherStep = new Discretization(mAugmented, stepSize);
+
+        return mOtherStep;
+    }
+}
@@ -0,0 +1,54 @@
+package root;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AngleUnwrapperTest
+{
+    private static final double TWO_PI = 2 * Math.PI;
+
+    @Test
+    public void followsSpinsInBothDirections()
+    {
+        // Over a thousand turns each way, a bit under half a turn per sample at the fastest
+        for (double step : new double[]{0.5, -0.5, 3.0, -3.0, 0.001})
+        {
+            AngleUnwrapper unwrapper = new AngleUnwrapper();
+
+            for (int i = 0; i < 20_000; ++i)
+            {
+                double angle = step * i;
+                double wrapped = PendulumModel.getBoundedAngle(angle);
+                double unwrapped = unwrapper.unwrap(wrapped);
+
+                assertWholeTurns(unwrapped, wrapped);
+                assertEquals(angle, unwrapped, 1e-9 * Math.max(1.0, Math.abs(angle)), "step " + step + " sample " + i);
+                assertEquals(Math.round((angle - wrapped) / TWO_PI), unwrapper.getTurns());
+            }
+        }
+    }
+
+    @Test
+    public void resetStartsAgainFromTheNextAngle()
+    {
+        AngleUnwrapper unwrapper = new AngleUnwrapper();
+        for (int i = 0; i < 100; ++i)
+            unwrapper.unwrap(PendulumModel.getBoundedAngle(i));
+        assertTrue(unwrapper.getTurns() > 0);
+
+        unwrapper.reset();
+        assertEquals(0, unwrapper.getTurns());
+        assertEquals(-3.0, unwrapper.unwrap(-3.0));
+        assertEquals(3.0 - TWO_PI, unwrapper.unwrap(3.0));
+    }
+
+    static void assertWholeTurns(double unwrapped, double wrapped)
+    {
+        // The running offset picks up a rounding error with every turn it adds
+        double turns = (unwrapped - wrapped) / TWO_PI;
+        assertEquals(Math.rint(turns), turns, 1e-9 * Math.max(1.0, Math.abs(turns)),
+                "unwrapped " + unwrapped + " and wrapped " + wrapped);
+    }
+}
@@ -0,0 +1,84 @@
+package root;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Steps a batch of one pendulum next to a {@link Simulator} run of the same config and checks every saved sample is
+ * exactly the same, so the batch's inlined dynamics can't drift from {@link PendulumModel}
+ */
+public class PendulumBatchTest
+{
+    @Test
+    public void nonlinearPidMatchesSimulator()
+    {
+        checkSamples(builder(false).setUsePid(true).setUseEigenvaluePlacement(false).setUseLqr(false));
+    }
+
+    @Test
+    public void nonlinearEigenvaluePlacementMatchesSimulator()
+    {
+        checkSamples(builder(false).setUsePid(false).setUseEigenvaluePlacement(true).setUseLqr(false));
+    }
+
+    @Test
+    public void nonlinearSaturatedLqrMatchesSimulator()
+    {
+        checkSamples(builder(false).setUsePid(false).setUseEigenvaluePlacement(false).setUseLqr(true)
+                .setMaxTorqueOutput(0.5));
+    }
+
+    @Test
+    public void nonlinearFallMatchesSimulator()
+    {
+        // Weak gains and a large start so it falls and goes round, which exercises bounding theta
+        checkSamples(builder(false).setUsePid(false).setUseEigenvaluePlacement(true).setUseLqr(false)
+                .setEigenvalue1(-0.5).setEigenvalue2(-0.5).setInitialState(3.0, 10.0));
+    }
+
+    @Test
+    public void linearizedPidMatchesSimulator()
+    {
+        checkSamples(builder(true).setUsePid(true).setUseEigenvaluePlacement(false).setUseLqr(false));
+    }
+
+    @Test
+    public void linearizedEigenvaluePlacementMatchesSimulator()
+    {
+        checkSamples(builder(true).setUsePid(false).setUseEigenvaluePlacement(true).setUseLqr(false));
+    }
+
+    private static SimulationConfig.Builder builder(boolean linearized)
+    {
+        return new SimulationConfig.Builder()
+                .setLinearized(linearized)
+                .setUseAntiWindup(false)
+                .setIncludePerturbations(false)
+                .setIntegrator(Integrator.Type.RK4)
+                .setInitialState(0.3, 0.0)
+                .setTimespanNs(Constants.secondsToNanoseconds(5));
+    }
+
+    private static void checkSamples(SimulationConfig.Builder builder)
+    {
+        SimulationConfig config = builder.build();
+        Trajectory trajectory = new Simulator().run(config).getTrajectory();
+
+        PendulumBatch batch = new PendulumBatch(config.linearized, 1);
+        batch.add(config);
+
+        // Sample 0 is the state after the first step and every later one saveStateEveryXNs further on
+        int stepsPerSample = (int) (config.saveStateEveryXNs / config.dtNs);
+        batch.step(config.dtS);
+        for (int i = 0; i < trajectory.size(); ++i)
+        {
+            if (i > 0)
+                batch.step(config.dtS, stepsPerSample);
+
+            assertEquals(trajectory.getTheta(i), batch.getTheta(0), "theta at sample " + i);
+            assertEquals(trajectory.getThetaDot(i), batch.getThetaDot(0), "thetaDot at sample " + i);
+            assertEquals(trajectory.getTorque(i), batch.getTorque(0), "torque at sample " + i);
+        }
+    }
+}
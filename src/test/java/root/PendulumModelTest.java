@@ -0,0 +1,205 @@
+package root;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Steps {@link PendulumModel} next to the Matrix based RK4 loop it replaced, which is kept here the way Main had it, and
+ * checks that every step gives exactly the same state
+ */
+public class PendulumModelTest
+{
+    private static final double DT_S = Constants.DT_S;
+    private static final int STEPS = 30_000;
+
+    @Test
+    public void nonlinearMatchesMatrixPath()
+    {
+        checkSteps(false, Constants.EIGENVALUE_1, Constants.EIGENVALUE_2, 2.3);
+    }
+
+    @Test
+    public void linearizedMatchesMatrixPath()
+    {
+        checkSteps(true, Constants.EIGENVALUE_1, Constants.EIGENVALUE_2, 2.3);
+    }
+
+    @Test
+    public void nonlinearFallMatchesMatrixPath()
+    {
+        // Weak gains and a long push so it falls over and goes round, which exercises bounding theta
+        checkSteps(false, -0.5, -0.5, 10.0);
+    }
+
+    @Test
+    public void boundedAngleBringsBackAnglesBelowMinusTwoPi()
+    {
+        // Dividing the absolute value into whole turns used to take a negative angle further out and then back to -7
+        assertEquals(-7 + 2 * Math.PI, PendulumModel.getBoundedAngle(-7));
+        assertEquals(7 - 2 * Math.PI, PendulumModel.getBoundedAngle(7));
+        assertEquals(Math.PI, PendulumModel.getBoundedAngle(Math.PI));
+        assertEquals(-Math.PI, PendulumModel.getBoundedAngle(-Math.PI));
+    }
+
+    @Test
+    public void boundedAngleTakesOffWholeTurns()
+    {
+        for (double turns : new double[]{1, 2, 3, 10, 1_000, 1e6, 1e9})
+        {
+            for (double offset : new double[]{-3.0, -1.0, 0.0, 0.5, 3.0})
+            {
+                for (double sign : new double[]{1.0, -1.0})
+                {
+                    double angle = sign * turns * 2 * Math.PI + offset;
+                    double bounded = PendulumModel.getBoundedAngle(angle);
+
+                    assertTrue(bounded >= -Math.PI && bounded <= Math.PI, angle + " bounded to " + bounded);
+                    AngleUnwrapperTest.assertWholeTurns(angle, bounded);
+                }
+            }
+        }
+    }
+
+    private static void checkSteps(boolean linearized, double eigenvalue1, double eigenvalue2, double perturbation)
+    {
+        MatrixPendulum reference = new MatrixPendulum(linearized, eigenvalue1, eigenvalue2);
+        PendulumModel model = new PendulumModel(Constants.PENDULUM_WIDTH, Constants.PENDULUM_LENGTH,
+                Constants.PENDULUM_MASS, Constants.VISCOUS_FRICTION, Constants.GRAVITY, linearized);
+        model.setState(0.0, 0.0);
+        Matrix kMatrix = model.getEigenvaluePlacementKMatrix(eigenvalue1, eigenvalue2);
+
+        for (int step = 0; step < STEPS; ++step)
+        {
+            double pushTorque = step < 5_000 ? perturbation : 0.0;
+
+            double referenceTorque = reference.step(pushTorque);
+
+            model.boundTheta();
+            // Same order of operations as -K * state
+            double torque = -(0.0 + kMatrix.get(0, 0) * model.getTheta() + kMatrix.get(1, 0) * model.getThetaDot());
+            if (Math.abs(torque) > Constants.MAX_TORQUE_OUTPUT)
+                torque = Math.copySign(Constants.MAX_TORQUE_OUTPUT, torque);
+            assertEquals(referenceTorque, torque, "torque at step " + step);
+
+            model.step(torque + pushTorque, DT_S);
+
+            assertEquals(reference.getTheta(), model.getTheta(), "theta at step " + step);
+            assertEquals(reference.getThetaDot(), model.getThetaDot(), "thetaDot at step " + step);
+        }
+    }
+
+    /**
+     * The simulation loop from before PendulumModel, state and derivatives as 1x2 matrices and the plant as the A and
+     * B matrices or the full equation of motion written out with Math.pow
+     */
+    private static class MatrixPendulum
+    {
+        private final boolean mLinearized;
+
+        private final Matrix mAMatrix = new Matrix(new ArrayList<>(Arrays.asList(
+                new ArrayList<>(Arrays.asList(0.0, (12 * Constants.PENDULUM_MASS * Constants.GRAVITY * Constants.PENDULUM_LENGTH)
+                        / (Math.pow(Constants.PENDULUM_WIDTH, 2) + 4 * Math.pow(Constants.PENDULUM_LENGTH, 2)))),
+                new ArrayList<>(Arrays.asList(1.0, 0.0))
+        )));
+
+        private final Matrix mBMatrix = new Matrix(new ArrayList<>(Collections.singletonList(
+                new ArrayList<>(Arrays.asList(0.0, 24.0 / (Math.pow(Constants.PENDULUM_WIDTH, 2) + 4.0 * Math.pow(Constants.PENDULUM_LENGTH, 2))))
+        )));
+
+        private final Matrix mKMatrix;
+
+        private final Matrix mState = new Matrix(new ArrayList<>(Collections.singletonList(
+                new ArrayList<>(Arrays.asList(0.0, 0.0)))));
+        private final Matrix mK1 = new Matrix(1, 2);
+        private final Matrix mK2 = new Matrix(1, 2);
+        private final Matrix mK3 = new Matrix(1, 2);
+        private final Matrix mK4 = new Matrix(1, 2);
+        private final Matrix mIntermediateState = new Matrix(1, 2);
+        private final Matrix mDeltaState = new Matrix(1, 2);
+        private final Matrix mFeedback = new Matrix(1, 1);
+
+        MatrixPendulum(boolean linearized, double eigenvalue1, double eigenvalue2)
+        {
+            mLinearized = linearized;
+            mKMatrix = new Matrix(new ArrayList<>(Arrays.asList(
+                    new ArrayList<>(Collections.singletonList(((eigenvalue1 * eigenvalue2) * (Math.pow(Constants.PENDULUM_WIDTH, 2) + 4.0 * Math.pow(Constants.PENDULUM_LENGTH, 2))
+                            + 12.0 * Constants.PENDULUM_MASS * Constants.GRAVITY * Constants.PENDULUM_LENGTH)
+                            / 24.0)),
+                    new ArrayList<>(Collections.singletonList(((-eigenvalue1 - eigenvalue2) * (Math.pow(Constants.PENDULUM_WIDTH, 2) + 4.0 * Math.pow(Constants.PENDULUM_LENGTH, 2))
+                            - Constants.VISCOUS_FRICTION)
+                            / 24.0))
+            )));
+        }
+
+        double getTheta()
+        {
+            return mState.get(0, 0);
+        }
+
+        double getThetaDot()
+        {
+            return mState.get(0, 1);
+        }
+
+        /**
+         * One step of the old loop, returns the torque from the controller before pushTorque was added to it
+         */
+        double step(double pushTorque)
+        {
+            if (!mLinearized)
+                mState.set(0, 0, getBoundedAngle(getTheta()));
+
+            double inputTorque = -mKMatrix.multiplyInto(mState, mFeedback).get(0, 0);
+            if (Math.abs(inputTorque) > Constants.MAX_TORQUE_OUTPUT)
+                inputTorque = Math.copySign(Constants.MAX_TORQUE_OUTPUT, inputTorque);
+
+            double controllerTorque = inputTorque;
+            inputTorque += pushTorque;
+
+            getDerivativeOfSystemAt(mState, inputTorque, mK1);
+            getDerivativeOfSystemAt(mIntermediateState.copyFrom(mState).addScaledInPlace(mK1, DT_S / 2.0), inputTorque, mK2);
+            getDerivativeOfSystemAt(mIntermediateState.copyFrom(mState).addScaledInPlace(mK2, DT_S / 2.0), inputTorque, mK3);
+            getDerivativeOfSystemAt(mIntermediateState.copyFrom(mState).addScaledInPlace(mK3, DT_S), inputTorque, mK4);
+
+            mDeltaState.copyFrom(mK1).addScaledInPlace(mK2, 2).addScaledInPlace(mK3, 2).addInPlace(mK4).scaleInPlace((1.0 / 6.0) * DT_S);
+            mState.addInPlace(mDeltaState);
+
+            return controllerTorque;
+        }
+
+        private Matrix getDerivativeOfSystemAt(Matrix state, double inputTorque, Matrix derivative)
+        {
+            if (mLinearized)
+            {
+                return mAMatrix.multiplyInto(state, derivative).addScaledInPlace(mBMatrix, inputTorque);
+            } else
+            {
+                derivative.set(0, 0, state.get(0, 1));
+                derivative.set(0, 1, 12 * (Constants.PENDULUM_MASS * Constants.GRAVITY * Constants.PENDULUM_LENGTH * Math.sin(state.get(0, 0))
+                        + 2 * inputTorque
+                        - 2 * state.get(0, 1) * Constants.VISCOUS_FRICTION)
+                        / (Math.pow(Constants.PENDULUM_WIDTH, 2) + 4 * Math.pow(Constants.PENDULUM_LENGTH, 2)));
+                return derivative;
+            }
+        }
+
+        private static double getBoundedAngle(double angle)
+        {
+            int fullRotations = (int) (Math.abs(angle) / (2 * Math.PI));
+
+            double newAngle = angle - (fullRotations * (2 * Math.PI));
+            if (newAngle > Math.PI)
+                newAngle -= (2 * Math.PI);
+            else if (newAngle < -Math.PI)
+                newAngle += (2 * Math.PI);
+
+            return newAngle;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package root;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ResultCacheTest
+{
+    @TempDir
+    Path mDirectory;
+
+    @Test
+    public void replaysTheSameRunFromMemoryAndFromTheFile() throws IOException
+    {
+        SimulationConfig config = new SimulationConfig.Builder().build();
+        SimulationResult fresh = new Simulator().run(config);
+
+        ResultCache cache = new ResultCache(mDirectory, 64L * 1024 * 1024);
+        Simulator simulator = new Simulator(cache);
+        assertSameRun(fresh, simulator.run(config));
+        assertSameRun(fresh, simulator.run(config));
+
+        assertTrue(cache.getMemoryBytes() > 0);
+
+        // A new cache on the same directory only has the file
+        assertSameRun(fresh, new Simulator(new ResultCache(mDirectory, 0)).run(config));
+    }
+
+    @Test
+    public void storesStreamedRunsButNotSummaries() throws IOException
+    {
+        ResultCache cache = new ResultCache(mDirectory, 64L * 1024 * 1024);
+        Simulator simulator = new Simulator(cache);
+        SimulationConfig summarized = new SimulationConfig.Builder().setKd(3.0).build();
+        SimulationConfig streamed = new SimulationConfig.Builder().setKd(4.0).build();
+
+        simulator.summarize(summarized);
+        assertEquals(0, countFiles());
+        assertNull(cache.replay(summarized, null));
+
+        Trajectory trajectory = new Trajectory(1);
+        RunSummary summary = simulator.stream(streamed, trajectory);
+        assertEquals(1, countFiles());
+        assertEquals(0, cache.getMemoryBytes());
+
+        Trajectory replayed = new Trajectory(1);
+        RunSummary replayedSummary = cache.replay(streamed, replayed);
+        assertEquals(summary.getSettlingTime(), replayedSummary.getSettlingTime());
+        assertEquals(trajectory.size(), replayed.size());
+        for (int i = 0; i < trajectory.size(); ++i)
+            assertEquals(trajectory.getTheta(i), replayed.getTheta(i));
+
+        assertEquals(summary.getMaxAbsTheta(), simulator.summarize(streamed).getMaxAbsTheta());
+    }
+
+    @Test
+    public void anyChangedParameterIsAMiss() throws IOException
+    {
+        SimulationConfig config = new SimulationConfig.Builder().build();
+        ResultCache cache = new ResultCache(mDirectory, 64L * 1024 * 1024);
+        new Simulator(cache).run(config);
+
+        SimulationConfig[] changed = {
+                config.toBuilder().setPendulumMass(config.pendulumMass * 1.0000001).build(),
+                config.toBuilder().setIntegrator(Integrator.Type.DORMAND_PRINCE).build(),
+                config.toBuilder().setInitialState(config.initialTheta, 1e-9).build(),
+                config.toBuilder().setTimespanNs(config.timespanNs + config.saveStateEveryXNs).build(),
+        };
+        for (SimulationConfig changedConfig : changed)
+        {
+            assertNotEquals(config.getHash(), changedConfig.getHash());
+            assertNull(cache.replay(changedConfig, null));
+        }
+
+        assertEquals(config.getHash(), config.toBuilder().build().getHash());
+    }
+
+    private long countFiles() throws IOException
+    {
+        try (Stream<Path> files = Files.list(mDirectory))
+        {
+            return files.count();
+        }
+    }
+
+    private static void assertSameRun(SimulationResult expected, SimulationResult actual)
+    {
+        Trajectory expectedTrajectory = expected.getTrajectory();
+        Trajectory actualTrajectory = actual.getTrajectory();
+        assertEquals(expectedTrajectory.size(), actualTrajectory.size());
+
+        for (int i = 0; i < expectedTrajectory.size(); ++i)
+        {
+            assertEquals(expectedTrajectory.getTime(i), actualTrajectory.getTime(i));
+            assertEquals(expectedTrajectory.getTheta(i), actualTrajectory.getTheta(i));
+            assertEquals(expectedTrajectory.getThetaDot(i), actualTrajectory.getThetaDot(i));
+            assertEquals(expectedTrajectory.getTorque(i), actualTrajectory.getTorque(i));
+        }
+
+        RunSummary expectedSummary = expected.getSummary();
+        RunSummary actualSummary = actual.getSummary();
+        assertEquals(expectedSummary.getSettlingTime(), actualSummary.getSettlingTime());
+        assertEquals(expectedSummary.getMaxAbsTheta(), actualSummary.getMaxAbsTheta());
+        assertEquals(expectedSummary.getSaturationFraction(), actualSummary.getSaturationFraction());
+        assertEquals(expectedSummary.fell(), actualSummary.fell());
+        assertEquals(expectedSummary.getDerivativeEvaluations(), actualSummary.getDerivativeEvaluations());
+    }
+}
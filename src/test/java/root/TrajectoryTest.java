@@ -0,0 +1,72 @@
+package root;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TrajectoryTest
+{
+    @Test
+    public void ringKeepsUnwrappingAfterItWrapsAround()
+    {
+        Trajectory trajectory = Trajectory.ring(64);
+
+        // About 50 turns, so the ring is overwritten many times over
+        double step = 0.3;
+        int samples = 1_000;
+        for (int i = 0; i < samples; ++i)
+            trajectory.add(i, PendulumModel.getBoundedAngle(step * i), step, 0.0);
+
+        assertEquals(samples - 64, trajectory.getStartSample());
+        for (int i = trajectory.getStartSample(); i < trajectory.getEndSample(); ++i)
+        {
+            AngleUnwrapperTest.assertWholeTurns(trajectory.getUnwrappedTheta(i), trajectory.getTheta(i));
+            assertEquals(step * i, trajectory.getUnwrappedTheta(i), 1e-9);
+        }
+
+        trajectory.clear();
+        trajectory.add(0, 1.0, 0.0, 0.0);
+        assertEquals(1.0, trajectory.getUnwrappedTheta(0));
+    }
+
+    @Test
+    public void saturatedFallUnwrapsEveryTurn()
+    {
+        // Almost no torque to hold it up and a long push, so it falls and keeps going round
+        SimulationConfig config = new SimulationConfig.Builder()
+                .setLinearized(false)
+                .setMaxTorqueOutput(0.01)
+                .setIncludePerturbations(true)
+                .setPerturbations(Collections.singletonList(new Perturbation(0, 5.0, Constants.secondsToNanoseconds(4))))
+                .setPerturbationGenerators(Collections.emptyList())
+                .setTimespanNs(Constants.secondsToNanoseconds(10))
+                .build();
+
+        SimulationResult result = new Simulator().run(config);
+        Trajectory trajectory = result.getTrajectory();
+
+        assertTrue(result.getSummary().fell());
+        assertTrue(result.getSummary().getSaturationFraction() > 0.9);
+        assertEquals(config.getSampleCount(), trajectory.size());
+
+        for (int i = 0; i < trajectory.size(); ++i)
+        {
+            double theta = trajectory.getTheta(i);
+            // Theta is bounded before each step, so a sample can be up to a step past +-pi
+            assertTrue(Math.abs(theta) < Math.PI + 0.1, "theta " + theta + " at sample " + i);
+            AngleUnwrapperTest.assertWholeTurns(trajectory.getUnwrappedTheta(i), theta);
+
+            if (i > 0)
+            {
+                double change = trajectory.getUnwrappedTheta(i) - trajectory.getUnwrappedTheta(i - 1);
+                assertTrue(Math.abs(change) < Math.PI, "unwrapped theta jumped by " + change + " at sample " + i);
+            }
+        }
+
+        double turns = trajectory.getUnwrappedTheta(trajectory.size() - 1) / (2 * Math.PI);
+        assertTrue(turns > 50, "only went round " + turns + " times");
+    }
+}